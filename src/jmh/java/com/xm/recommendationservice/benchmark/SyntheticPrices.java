@@ -0,0 +1,96 @@
+package com.xm.recommendationservice.benchmark;
+
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible price data for the benchmarks. Every symbol has its rows spread evenly over
+ * the same {@value #DAYS} days starting at {@link #START_DATE}, so the same dates hit every dataset,
+ * and prices follow a random walk with 2 decimals.
+ */
+public final class SyntheticPrices {
+
+    public static final LocalDate START_DATE = LocalDate.of(2022, 1, 1);
+    public static final int DAYS = 30;
+    private static final long START_PRICE = 4_600_000;
+    private static final int SCALE = 2;
+
+    private SyntheticPrices() {
+    }
+
+    /**
+     * @param dataset {@code <symbols>x<rows per symbol>}, e.g. {@code 5x1000000}
+     */
+    public static InMemoryPriceRepository repository(String dataset) {
+        String[] size = dataset.split("x");
+        int symbols = Integer.parseInt(size[0]);
+        int rows = Integer.parseInt(size[1]);
+        List<SymbolPrices> allPrices = new ArrayList<>(symbols);
+        for (int i = 0; i < symbols; i++) {
+            allPrices.add(prices(symbol(i), rows));
+        }
+        InMemoryPriceRepository priceRepository = new InMemoryPriceRepository();
+        priceRepository.update(allPrices, Collections.emptyList());
+        return priceRepository;
+    }
+
+    public static String symbol(int index) {
+        return String.format("S%04d", index);
+    }
+
+    public static SymbolPrices prices(String symbol, int rows) {
+        SymbolPricesBuilder builder = new SymbolPricesBuilder(symbol, rows);
+        Random random = new Random(symbol.hashCode());
+        long start = startMillis();
+        long step = Math.max(Duration.ofDays(DAYS).toMillis() / rows, 1);
+        long price = START_PRICE;
+        for (int row = 0; row < rows; row++) {
+            price = nextPrice(random, price);
+            builder.add(start + row * step, price, SCALE);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the same rows as {@link #prices(String, int)} as the content of a {@code *_values.csv} file
+     */
+    public static byte[] csv(String symbol, int rows) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(rows * 28 + 32);
+        StringBuilder line = new StringBuilder("timestamp,symbol,price\n");
+        Random random = new Random(symbol.hashCode());
+        long start = startMillis();
+        long step = Math.max(Duration.ofDays(DAYS).toMillis() / rows, 1);
+        long price = START_PRICE;
+        for (int row = 0; row < rows; row++) {
+            price = nextPrice(random, price);
+            line.append(start + row * step).append(',').append(symbol).append(',')
+                    .append(price / 100).append('.').append(price % 100 < 10 ? "0" : "").append(price % 100)
+                    .append('\n');
+            if (line.length() > 8192) {
+                output.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+                line.setLength(0);
+            }
+        }
+        output.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+        return output.toByteArray();
+    }
+
+    private static long startMillis() {
+        return START_DATE.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long nextPrice(Random random, long price) {
+        return Math.max(price + random.nextInt(1001) - 500, 1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.xm.recommendationservice.benchmark.SyntheticPrices;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing one {@code *_values.csv} file held in a direct buffer, as it is when memory-mapped,
+ * into the columns of a symbol, including building its summary and daily index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvPriceParserBenchmark {
+
+    private static final String SYMBOL = SyntheticPrices.symbol(0);
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int rows;
+
+    private ByteBuffer csv;
+
+    @Setup
+    public void setUp() {
+        byte[] content = SyntheticPrices.csv(SYMBOL, rows);
+        csv = ByteBuffer.allocateDirect(content.length).put(content).flip();
+    }
+
+    @Benchmark
+    public SymbolPrices parse() throws IOException {
+        SymbolPricesBuilder builder = new SymbolPricesBuilder(SYMBOL);
+        new CsvPriceParser(SYMBOL).parse(csv, builder, true);
+        return builder.build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.opencsv.bean.AbstractBeanField;
+import com.opencsv.bean.CsvBindByName;
+import com.opencsv.bean.CsvCustomBindByName;
+import com.opencsv.bean.CsvToBeanBuilder;
+import com.xm.recommendationservice.benchmark.SyntheticPrices;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline for {@link CsvPriceParserBenchmark}: the same {@code *_values.csv} content bound row by row to beans with
+ * OpenCSV's {@link CsvToBeanBuilder}, the way prices were read before {@link CsvPriceParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OpenCsvPriceBenchmark {
+
+    private static final String SYMBOL = SyntheticPrices.symbol(0);
+
+    @Param({"100", "10000", "1000000"})
+    public int rows;
+
+    private byte[] csv;
+
+    @Setup
+    public void setUp() {
+        csv = SyntheticPrices.csv(SYMBOL, rows);
+    }
+
+    @Benchmark
+    public List<Price> parse() {
+        return new CsvToBeanBuilder<Price>(
+                new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))
+                .withType(Price.class)
+                .build()
+                .parse();
+    }
+
+    /**
+     * The bean the prices were bound to, with the annotations and timestamp converter it had.
+     */
+    public static class Price {
+
+        @CsvBindByName(column = "symbol")
+        private String currencySymbol;
+        @CsvCustomBindByName(column = "timestamp", converter = TimestampToLocalDateTimeConverter.class)
+        private LocalDateTime priceTime;
+        @CsvBindByName(column = "price")
+        private BigDecimal priceValue;
+
+        public String getCurrencySymbol() {
+            return currencySymbol;
+        }
+
+        public void setCurrencySymbol(String currencySymbol) {
+            this.currencySymbol = currencySymbol;
+        }
+
+        public LocalDateTime getPriceTime() {
+            return priceTime;
+        }
+
+        public void setPriceTime(LocalDateTime priceTime) {
+            this.priceTime = priceTime;
+        }
+
+        public BigDecimal getPriceValue() {
+            return priceValue;
+        }
+
+        public void setPriceValue(BigDecimal priceValue) {
+            this.priceValue = priceValue;
+        }
+    }
+
+    public static class TimestampToLocalDateTimeConverter extends AbstractBeanField<LocalDateTime, String> {
+
+        @Override
+        protected LocalDateTime convert(String value) {
+            long epochMilli = Long.parseLong(value);
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+        }
+    }
+}
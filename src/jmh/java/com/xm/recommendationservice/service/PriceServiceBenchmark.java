@@ -0,0 +1,202 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.benchmark.SyntheticPrices;
+import com.xm.recommendationservice.cluster.PriceCluster;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.domain.Candle;
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.domain.CryptoPrice;
+import com.xm.recommendationservice.domain.CryptoStats;
+import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Every public method of {@link PriceService} against synthetic datasets of
+ * {@code <symbols>x<rows per symbol>}. Single symbol queries use the symbol in the middle of the dataset,
+ * period queries the day in the middle of the generated month.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PriceServiceBenchmark {
+
+    private static final int PAGE_LIMIT = 1000;
+    private static final int STATS_SYMBOLS = 100;
+    private static final List<String> MIN_MAX = List.of("minPrice", "maxPrice");
+
+    @Param({"5x100", "5x1000000", "5x10000000", "100x100000", "1000x100", "1000x10000"})
+    public String dataset;
+
+    private InMemoryPriceRepository priceRepository;
+    private PriceService priceService;
+    private SymbolPrices symbolPrices;
+    private String symbol;
+    private String middleCursor;
+    private List<String> statsSymbols;
+    private LocalDate day;
+    private LocalDateTime dayStart;
+    private LocalDateTime dayEnd;
+
+    @Setup
+    public void setUp() throws ServiceException {
+        priceRepository = SyntheticPrices.repository(dataset);
+        PriceProperties priceProperties = new PriceProperties();
+        priceService = new PriceService(priceRepository, priceProperties, new SymbolAggregator(priceProperties),
+                new RollingNormalizedRangeRankings(priceRepository, priceProperties),
+                PriceCluster.singleNode(priceRepository));
+        symbolPrices = priceRepository.findAll().stream()
+                .skip(priceRepository.findAll().size() / 2)
+                .findFirst()
+                .orElseThrow();
+        symbol = symbolPrices.getSymbol();
+        int middle = symbolPrices.size() / 2;
+        middleCursor = priceService.getAllPrices(symbol, null, middle).getNextCursor();
+        statsSymbols = priceRepository.findAll().stream()
+                .limit(STATS_SYMBOLS)
+                .map(SymbolPrices::getSymbol)
+                .collect(Collectors.toList());
+        day = SyntheticPrices.START_DATE.plusDays(SyntheticPrices.DAYS / 2);
+        dayStart = day.atStartOfDay();
+        dayEnd = day.plusDays(1).atStartOfDay();
+    }
+
+    @Benchmark
+    public void allPrices(Blackhole blackhole) throws ServiceException {
+        List<CryptoPrice> prices = priceService.getAllPrices(symbol);
+        blackhole.consume(prices);
+    }
+
+    @Benchmark
+    public void allPricesFirstPage(Blackhole blackhole) throws ServiceException {
+        consume(priceService.getAllPrices(symbol, null, PAGE_LIMIT), blackhole);
+    }
+
+    @Benchmark
+    public void allPricesMiddlePage(Blackhole blackhole) throws ServiceException {
+        consume(priceService.getAllPrices(symbol, middleCursor, PAGE_LIMIT), blackhole);
+    }
+
+    @Benchmark
+    public CryptoPrice minPrice() throws ServiceException {
+        return priceService.getMinPrice(symbol);
+    }
+
+    @Benchmark
+    public CryptoPrice maxPrice() throws ServiceException {
+        return priceService.getMaxPrice(symbol);
+    }
+
+    @Benchmark
+    public CryptoPrice oldestMonthPrice() throws ServiceException {
+        return priceService.getOldestMonthPrice(symbol);
+    }
+
+    @Benchmark
+    public CryptoPrice newestMonthPrice() throws ServiceException {
+        return priceService.getNewestMonthPrice(symbol);
+    }
+
+    /**
+     * All four statistics of up to {@value #STATS_SYMBOLS} symbols in one call.
+     */
+    @Benchmark
+    public List<CryptoStats> stats() throws ServiceException {
+        return priceService.getStats(statsSymbols, Collections.emptyList());
+    }
+
+    /**
+     * Two of the statistics of up to {@value #STATS_SYMBOLS} symbols in one call.
+     */
+    @Benchmark
+    public List<CryptoStats> minMaxStats() throws ServiceException {
+        return priceService.getStats(statsSymbols, MIN_MAX);
+    }
+
+    /**
+     * The ranking as served between price updates, computed once per data version.
+     */
+    @Benchmark
+    public Set<CryptoNormalizedRange> normalizedRangeRanking() throws ServiceException {
+        return priceService.getAllCryptosWithNormalizedRange();
+    }
+
+    /**
+     * The ranking right after a price update. Includes publishing the update, which copies the symbol map
+     * and ranks the updated symbol again in the rolling windows.
+     */
+    @Benchmark
+    public Set<CryptoNormalizedRange> normalizedRangeRankingAfterUpdate() throws ServiceException {
+        priceRepository.update(Collections.singletonList(symbolPrices), Collections.emptyList());
+        return priceService.getAllCryptosWithNormalizedRange();
+    }
+
+    @Benchmark
+    public void allPricesInPeriod(Blackhole blackhole) throws ServiceException {
+        List<CryptoPrice> prices = priceService.getAllPricesInPeriod(symbol, dayStart, dayEnd);
+        blackhole.consume(prices);
+    }
+
+    @Benchmark
+    public void allPricesInPeriodFirstPage(Blackhole blackhole) throws ServiceException {
+        consume(priceService.getAllPricesInPeriod(symbol, dayStart, dayEnd, null, PAGE_LIMIT), blackhole);
+    }
+
+    @Benchmark
+    public CryptoNormalizedRange cryptoWithHighestNormalizedRangeByDate() throws ServiceException {
+        return priceService.getCryptoWithHighestNormalizedRangeByDate(day);
+    }
+
+    @Benchmark
+    public Set<CryptoNormalizedRange> cryptosWithNormalizedRangeInPeriod() throws ServiceException {
+        return priceService.getCryptosWithNormalizedRangeInPeriod(SyntheticPrices.START_DATE,
+                SyntheticPrices.START_DATE.plusDays(SyntheticPrices.DAYS));
+    }
+
+    /**
+     * Ranking over an interval of half the data set, answered by the range index of every symbol.
+     */
+    @Benchmark
+    public Set<CryptoNormalizedRange> cryptosWithNormalizedRangeBetween() throws ServiceException {
+        return priceService.getCryptosWithNormalizedRangeBetween(dayStart.minusDays(SyntheticPrices.DAYS / 4),
+                dayEnd.plusDays(SyntheticPrices.DAYS / 4));
+    }
+
+    /**
+     * Ranking of a rolling window that is not maintained on ingestion, so computed on every call.
+     */
+    @Benchmark
+    public Set<CryptoNormalizedRange> cryptosWithNormalizedRangeInRollingWindow() throws ServiceException {
+        return priceService.getCryptosWithNormalizedRangeInRollingWindow("12h");
+    }
+
+    /**
+     * Daily chart of the whole data set, read from the rolled up candles whatever the number of rows.
+     */
+    @Benchmark
+    public List<Candle> dailyCandles() throws ServiceException {
+        return priceService.getCandles(symbol, "1d", null, null);
+    }
+
+    @Benchmark
+    public List<Candle> hourlyCandlesOfDay() throws ServiceException {
+        return priceService.getCandles(symbol, "1h", dayStart, dayEnd);
+    }
+
+    private static void consume(PricePage page, Blackhole blackhole) {
+        for (CryptoPrice price : page) {
+            blackhole.consume(price);
+        }
+        blackhole.consume(page.getNextCursor());
+    }
+}
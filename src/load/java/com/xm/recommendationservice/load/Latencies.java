@@ -0,0 +1,60 @@
+package com.xm.recommendationservice.load;
+
+import java.util.Arrays;
+
+/**
+ * Every latency of one endpoint, in nanoseconds. Not thread safe, every client keeps its own and they are merged
+ * once the run is over.
+ */
+public final class Latencies {
+
+    private long[] values = new long[1024];
+    private int size;
+    private int errors;
+    private boolean sorted;
+
+    public void add(long nanos, boolean error) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+        sorted = false;
+        if (error) {
+            errors++;
+        }
+    }
+
+    public void addAll(Latencies other) {
+        if (size + other.size > values.length) {
+            values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+        errors += other.errors;
+        sorted = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. {@code 99.9}
+     * @return the smallest latency that many percent of the requests were at most, 0 without requests
+     */
+    public long getPercentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(values, 0, size);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * size);
+        return values[Math.min(Math.max(rank, 1), size) - 1];
+    }
+}
@@ -0,0 +1,90 @@
+package com.xm.recommendationservice.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sends the requests of a {@link Workload} from {@link LoadSettings#getClients()} threads, each one sending its
+ * next request as soon as it got the answer of the previous one. A latency is the time from sending a request to
+ * reading the whole answer. Every answer but {@code 200 OK} counts as an error.
+ */
+public final class LoadDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final int clients;
+    private final Workload workload;
+    private final HttpClient httpClient;
+    private long seed;
+
+    public LoadDriver(String baseUrl, int clients, Workload workload) {
+        this.baseUrl = baseUrl;
+        this.clients = clients;
+        this.workload = workload;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+    }
+
+    public LoadReport run(Duration duration) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<Future<Map<String, Latencies>>> results = new ArrayList<>(clients);
+        for (int client = 0; client < clients; client++) {
+            Random random = new Random(seed++);
+            results.add(executor.submit(() -> runClient(random, end)));
+        }
+        executor.shutdown();
+        Map<String, Latencies> latencies = new LinkedHashMap<>();
+        workload.getEndpoints().forEach(endpoint -> latencies.put(endpoint.getName(), new Latencies()));
+        try {
+            for (Future<Map<String, Latencies>> result : results) {
+                result.get().forEach((endpoint, clientLatencies) -> latencies.get(endpoint).addAll(clientLatencies));
+            }
+        } catch (ExecutionException exception) {
+            executor.shutdownNow();
+            throw new IllegalStateException("A client failed", exception.getCause());
+        }
+        return new LoadReport(latencies, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private Map<String, Latencies> runClient(Random random, long end) {
+        Map<String, Latencies> latencies = new HashMap<>();
+        while (System.nanoTime() < end) {
+            Workload.Endpoint endpoint = workload.next(random);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint.getPath().apply(random)))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+            long sent = System.nanoTime();
+            boolean error;
+            try {
+                error = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200;
+            } catch (IOException exception) {
+                error = true;
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            latencies.computeIfAbsent(endpoint.getName(), name -> new Latencies())
+                    .add(System.nanoTime() - sent, error);
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,107 @@
+package com.xm.recommendationservice.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Throughput and latency percentiles of every endpoint of a run, and of all of them as {@value #TOTAL}.
+ */
+public final class LoadReport {
+
+    public static final String TOTAL = "total";
+
+    private final List<EndpointResult> results = new ArrayList<>();
+
+    public LoadReport(Map<String, Latencies> latencies, Duration elapsed) {
+        Latencies total = new Latencies();
+        latencies.forEach((endpoint, endpointLatencies) -> {
+            results.add(EndpointResult.of(endpoint, endpointLatencies, elapsed));
+            total.addAll(endpointLatencies);
+        });
+        results.add(EndpointResult.of(TOTAL, total, elapsed));
+    }
+
+    public List<EndpointResult> getResults() {
+        return results;
+    }
+
+    public void print(PrintStream output) {
+        output.printf("%-32s %10s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (EndpointResult result : results) {
+            output.printf("%-32s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", result.getEndpoint(),
+                    result.getRequests(), result.getErrors(), result.getRequestsPerSecond(), result.getP50Millis(),
+                    result.getP99Millis(), result.getP999Millis(), result.getMaxMillis());
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), results);
+    }
+
+    /**
+     * @param thresholds {@code <endpoint>.p99Millis} and {@code <endpoint>.p999Millis} as the highest latencies,
+     *                   {@code <endpoint>.minRequestsPerSecond} as the lowest throughput, {@value #TOTAL} included
+     * @return every exceeded threshold and every endpoint with errors, empty when the run passed
+     */
+    public List<String> check(Properties thresholds) {
+        List<String> failures = new ArrayList<>();
+        for (EndpointResult result : results) {
+            String endpoint = result.getEndpoint();
+            if (result.getErrors() > 0) {
+                failures.add(endpoint + " answered " + result.getErrors() + " requests with an error");
+            }
+            checkAtMost(failures, thresholds, endpoint + ".p99Millis", result.getP99Millis());
+            checkAtMost(failures, thresholds, endpoint + ".p999Millis", result.getP999Millis());
+            String minRequestsPerSecond = thresholds.getProperty(endpoint + ".minRequestsPerSecond");
+            if (minRequestsPerSecond != null && result.getRequestsPerSecond() < Double.parseDouble(minRequestsPerSecond)) {
+                failures.add(String.format("%s.minRequestsPerSecond is %s, got %.1f", endpoint, minRequestsPerSecond,
+                        result.getRequestsPerSecond()));
+            }
+        }
+        return failures;
+    }
+
+    private static void checkAtMost(List<String> failures, Properties thresholds, String name, double value) {
+        String threshold = thresholds.getProperty(name);
+        if (threshold != null && value > Double.parseDouble(threshold)) {
+            failures.add(String.format("%s is %s, got %.2f", name, threshold, value));
+        }
+    }
+
+    @Value
+    public static class EndpointResult {
+
+        String endpoint;
+        int requests;
+        int errors;
+        double requestsPerSecond;
+        double p50Millis;
+        double p99Millis;
+        double p999Millis;
+        double maxMillis;
+
+        static EndpointResult of(String endpoint, Latencies latencies, Duration elapsed) {
+            return new EndpointResult(endpoint, latencies.size(), latencies.getErrors(),
+                    latencies.size() * 1e9 / elapsed.toNanos(), millis(latencies.getPercentile(50)),
+                    millis(latencies.getPercentile(99)), millis(latencies.getPercentile(99.9)),
+                    millis(latencies.getPercentile(100)));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
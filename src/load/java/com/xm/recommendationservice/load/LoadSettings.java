@@ -0,0 +1,54 @@
+package com.xm.recommendationservice.load;
+
+import lombok.Value;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Settings of a {@link LoadTest} run, read from the {@code load.*} system properties.
+ */
+@Value
+public class LoadSettings {
+
+    /**
+     * Generated prices as {@code <symbols>x<rows per symbol>}, see
+     * {@link com.xm.recommendationservice.benchmark.SyntheticPrices}.
+     */
+    String dataset;
+    /**
+     * Clients sending requests at the same time, each one waiting for its answer before the next request.
+     */
+    int clients;
+    /**
+     * Time the service is loaded before measuring, so the JIT compiler and the caches are warm.
+     */
+    Duration warmup;
+    Duration duration;
+    /**
+     * Properties file with the latency and throughput limits, the packaged {@code load-thresholds.properties} when
+     * empty.
+     */
+    String thresholds;
+    List<String> serverJvmArgs;
+
+    public static LoadSettings fromSystemProperties() {
+        return new LoadSettings(
+                System.getProperty("load.dataset", "50x200000"),
+                Integer.getInteger("load.clients", 32),
+                DurationStyle.detectAndParse(System.getProperty("load.warmup", "15s")),
+                DurationStyle.detectAndParse(System.getProperty("load.duration", "60s")),
+                System.getProperty("load.thresholds", ""),
+                Arrays.asList(System.getProperty("load.serverJvmArgs", "-Xms2g -Xmx2g").trim().split("\\s+")));
+    }
+
+    public int getSymbols() {
+        return Integer.parseInt(dataset.split("x")[0]);
+    }
+
+    public int getRowsPerSymbol() {
+        return Integer.parseInt(dataset.split("x")[1]);
+    }
+}
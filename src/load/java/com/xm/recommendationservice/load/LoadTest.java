@@ -0,0 +1,138 @@
+package com.xm.recommendationservice.load;
+
+import com.xm.recommendationservice.RecommendationServiceApplication;
+import com.xm.recommendationservice.benchmark.SyntheticPrices;
+import com.xm.recommendationservice.ingestion.PriceIngestionService;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * End-to-end load test of the REST API. Generates the prices of {@link LoadSettings#getDataset()}, starts the
+ * service on them in its own JVM with the rate limit disabled, drives the mixed {@link Workload} against it and
+ * reports the throughput and latency percentiles of every endpoint. Exits with 1 when a threshold of
+ * {@code load-thresholds.properties} is exceeded or an endpoint answered with errors, so a release can be gated on it.
+ * <p>
+ * Run with {@code ./gradlew loadTest}, the only argument is the folder of the report and the service log.
+ */
+public final class LoadTest {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(5);
+    private static final String DEFAULT_THRESHOLDS = "/load-thresholds.properties";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = LoadSettings.fromSystemProperties();
+        Path reportDirectory = Path.of(args.length > 0 ? args[0] : "build/reports/load");
+        Files.createDirectories(reportDirectory);
+        Path prices = Files.createTempDirectory("load-test-prices");
+        Process service = null;
+        List<String> failures;
+        try {
+            System.out.printf("Generating %s prices%n", settings.getDataset());
+            generatePrices(settings, prices);
+            int port = findFreePort();
+            service = startService(settings, prices, port, reportDirectory.resolve("service.log"));
+            String baseUrl = "http://localhost:" + port;
+            awaitStartup(service, baseUrl);
+
+            LoadDriver driver = new LoadDriver(baseUrl, settings.getClients(), Workload.mixed(settings.getSymbols()));
+            System.out.printf("Warming up for %s with %d clients%n", settings.getWarmup(), settings.getClients());
+            driver.run(settings.getWarmup());
+            System.out.printf("Measuring for %s with %d clients%n", settings.getDuration(), settings.getClients());
+            LoadReport report = driver.run(settings.getDuration());
+            report.print(System.out);
+            report.write(reportDirectory.resolve("load-test.json"));
+            failures = report.check(loadThresholds(settings));
+        } finally {
+            if (service != null) {
+                service.destroy();
+                service.waitFor();
+            }
+            FileSystemUtils.deleteRecursively(prices);
+        }
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> System.out.println("FAILED " + failure));
+            System.exit(1);
+        }
+    }
+
+    private static void generatePrices(LoadSettings settings, Path directory) throws IOException {
+        for (int i = 0; i < settings.getSymbols(); i++) {
+            String symbol = SyntheticPrices.symbol(i);
+            Files.write(directory.resolve(symbol + PriceIngestionService.FILE_SUFFIX),
+                    SyntheticPrices.csv(symbol, settings.getRowsPerSymbol()));
+        }
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Process startService(LoadSettings settings, Path prices, int port, Path log) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(settings.getServerJvmArgs());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(RecommendationServiceApplication.class.getName());
+        command.add("--server.port=" + port);
+        command.add("--bucket4j.enabled=false");
+        command.add("--prices.directory=" + prices);
+        command.add("--prices.watch=false");
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private static void awaitStartup(Process service, String baseUrl) throws InterruptedException {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!service.isAlive()) {
+                throw new IllegalStateException("The service stopped with " + service.exitValue()
+                        + ", see its log");
+            }
+            try {
+                if (httpClient.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException exception) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("The service did not start within " + STARTUP_TIMEOUT);
+    }
+
+    private static Properties loadThresholds(LoadSettings settings) throws IOException {
+        Properties thresholds = new Properties();
+        try (InputStream input = settings.getThresholds().isEmpty()
+                ? LoadTest.class.getResourceAsStream(DEFAULT_THRESHOLDS)
+                : Files.newInputStream(Path.of(settings.getThresholds()))) {
+            if (input == null) {
+                throw new IOException(DEFAULT_THRESHOLDS + " is missing");
+            }
+            thresholds.load(input);
+        }
+        return thresholds;
+    }
+}
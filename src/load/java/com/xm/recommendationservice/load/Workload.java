@@ -0,0 +1,100 @@
+package com.xm.recommendationservice.load;
+
+import com.xm.recommendationservice.benchmark.SyntheticPrices;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Endpoints of {@code PricesController} picked at random by the clients, each in proportion to its weight. Symbols,
+ * days and times are random too, so most requests miss the response cache, while the ranking of
+ * {@code /prices/normalizedRangeCryptos} is served from it as between two price updates.
+ */
+public final class Workload {
+
+    private final List<Endpoint> endpoints;
+    private final int totalWeight;
+
+    private Workload(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+        this.totalWeight = endpoints.stream().mapToInt(Endpoint::getWeight).sum();
+    }
+
+    /**
+     * @param symbols number of generated symbols
+     */
+    public static Workload mixed(int symbols) {
+        return new Workload(List.of(
+                new Endpoint("minPrice", 10, random -> "/prices/" + symbol(random, symbols) + "/minPrice"),
+                new Endpoint("maxPrice", 5, random -> "/prices/" + symbol(random, symbols) + "/maxPrice"),
+                new Endpoint("newestMonthPrice", 5,
+                        random -> "/prices/" + symbol(random, symbols) + "/newestMonthPrice"),
+                new Endpoint("stats", 10, random -> "/prices/stats?symbols=" + symbol(random, symbols) + ","
+                        + symbol(random, symbols) + "," + symbol(random, symbols)),
+                new Endpoint("normalizedRangeCryptos", 10, random -> "/prices/normalizedRangeCryptos"),
+                new Endpoint("normalizedRangeCryptosInPeriod", 5, random -> {
+                    LocalDate from = day(random);
+                    return "/prices/normalizedRangeCryptosInPeriod?fromDate=" + from + "&toDate=" + from.plusDays(6);
+                }),
+                new Endpoint("normalizedRangeCryptosBetween", 5, random -> {
+                    LocalDateTime from = hour(random);
+                    return "/prices/normalizedRangeCryptosBetween?fromTime=" + from + "&toTime=" + from.plusHours(12);
+                }),
+                new Endpoint("normalizedRangeCryptosRolling", 5, random -> "/prices/normalizedRangeCryptosRolling"
+                        + "?window=" + (random.nextBoolean() ? "24h" : random.nextInt(48) + 1 + "h")),
+                new Endpoint("bestCrypto", 10, random -> "/prices/bestCrypto?date=" + day(random)),
+                new Endpoint("candles", 15, random -> {
+                    LocalDateTime from = day(random).atStartOfDay();
+                    return "/prices/" + symbol(random, symbols) + "/candles?resolution=1h&fromTime=" + from
+                            + "&toTime=" + from.plusDays(1);
+                }),
+                new Endpoint("allPrices", 10, random -> "/prices/" + symbol(random, symbols) + "/allPrices?limit=100"),
+                new Endpoint("allPricesInPeriod", 10, random -> {
+                    LocalDateTime from = hour(random);
+                    return "/prices/" + symbol(random, symbols) + "/allPricesInPeriod?atDate=" + from
+                            + "&toDate=" + from.plusHours(1) + "&limit=100";
+                })));
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public Endpoint next(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            value -= endpoint.getWeight();
+            if (value < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("The weights changed");
+    }
+
+    private static String symbol(Random random, int symbols) {
+        return SyntheticPrices.symbol(random.nextInt(symbols));
+    }
+
+    private static LocalDate day(Random random) {
+        return SyntheticPrices.START_DATE.plusDays(random.nextInt(SyntheticPrices.DAYS));
+    }
+
+    private static LocalDateTime hour(Random random) {
+        return SyntheticPrices.START_DATE.atStartOfDay().plusHours(random.nextInt(SyntheticPrices.DAYS * 24));
+    }
+
+    @Value
+    public static class Endpoint {
+
+        /**
+         * Name in the report, the method name of the endpoint.
+         */
+        String name;
+        int weight;
+        Function<Random, String> path;
+    }
+}
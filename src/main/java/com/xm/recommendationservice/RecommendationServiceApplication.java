@@ -2,9 +2,11 @@ package com.xm.recommendationservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cache.annotation.EnableCaching;
 
 @EnableCaching
+@ConfigurationPropertiesScan
 @SpringBootApplication
 public class RecommendationServiceApplication {
 
@@ -0,0 +1,27 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import org.apache.catalina.connector.Connector;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClusterConfig {
+
+    /**
+     * Opens {@link PriceProperties#getClusterPort()} for the internal endpoints when clustered, next to the public port.
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> clusterPortCustomizer(
+            PriceProperties priceProperties, ShardRouter shardRouter) {
+        return factory -> {
+            if (shardRouter.isClustered()) {
+                Connector connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+                connector.setPort(priceProperties.getClusterPort());
+                factory.addAdditionalTomcatConnectors(connector);
+            }
+        };
+    }
+}
@@ -0,0 +1,362 @@
+package com.xm.recommendationservice.cluster;
+
+import com.giffing.bucket4j.spring.boot.starter.config.cache.SyncCacheResolver;
+import com.giffing.bucket4j.spring.boot.starter.context.properties.BandWidth;
+import com.giffing.bucket4j.spring.boot.starter.context.properties.Bucket4JBootProperties;
+import com.giffing.bucket4j.spring.boot.starter.context.properties.Bucket4JConfiguration;
+import com.giffing.bucket4j.spring.boot.starter.context.properties.RateLimit;
+import com.xm.recommendationservice.constants.ErrorCode;
+import com.xm.recommendationservice.exception.ServiceException;
+import io.github.bucket4j.AsyncBucket;
+import io.github.bucket4j.AsyncScheduledBucket;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BlockingBucket;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.BucketListener;
+import io.github.bucket4j.BucketState;
+import io.github.bucket4j.ConfigurationBuilder;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.EstimationProbe;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.grid.CommandResult;
+import io.github.bucket4j.grid.GridBucket;
+import io.github.bucket4j.grid.GridBucketState;
+import io.github.bucket4j.grid.GridCommand;
+import io.github.bucket4j.grid.GridProxy;
+import io.github.bucket4j.grid.ProxyManager;
+import io.github.bucket4j.grid.jcache.JCacheProxy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Rate limit buckets shared by the nodes of the cluster. Every bucket lives in the JCache of the node owning its key,
+ * see {@link ShardRouter}, and the other nodes ask that node to consume the tokens of their requests, so a limit
+ * holds for the whole cluster instead of once per node. Not clustered, every bucket is local, as with the plain
+ * JCache resolver.
+ * <p>
+ * Only consuming tokens, all the rate limit filter does, is sent to the owner, as a {@link RateLimitRequest}. The
+ * owner only builds buckets with the rate limits of its own bucket4j filters, so the other nodes cannot configure
+ * them. Other calls, and consuming when the owner does not answer, use a local bucket instead.
+ */
+@Primary
+@Component
+@Slf4j
+public class ClusterRateLimits implements SyncCacheResolver {
+
+    private final CacheManager cacheManager;
+    private final PriceCluster priceCluster;
+    /**
+     * Configurations of the rate limits of the bucket4j filters, by name of their cache.
+     */
+    private final Map<String, List<BucketConfiguration>> configurations = new HashMap<>();
+
+    @Autowired
+    public ClusterRateLimits(CacheManager cacheManager, PriceCluster priceCluster,
+                             ObjectProvider<Bucket4JBootProperties> bucket4jProperties) {
+        this(cacheManager, priceCluster, bucket4jProperties.getIfAvailable(Bucket4JBootProperties::new));
+    }
+
+    ClusterRateLimits(CacheManager cacheManager, PriceCluster priceCluster, Bucket4JBootProperties bucket4jProperties) {
+        this.cacheManager = cacheManager;
+        this.priceCluster = priceCluster;
+        for (Bucket4JConfiguration filter : bucket4jProperties.getFilters()) {
+            for (RateLimit rateLimit : filter.getRateLimits()) {
+                configurations.computeIfAbsent(filter.getCacheName(), cacheName -> new ArrayList<>())
+                        .add(toConfiguration(rateLimit));
+            }
+        }
+    }
+
+    @Override
+    public ProxyManager<String> resolve(String cacheName) {
+        GridProxy<String> localProxy = new LocalGridProxy(getCache(cacheName));
+        return new ProxyManager<>() {
+            @Override
+            public Bucket getProxy(String key, Supplier<BucketConfiguration> configurationSupplier) {
+                Bucket localBucket = GridBucket.createLazyBucket(key, configurationSupplier, localProxy);
+                String owner = priceCluster.getRouter().getOwner(key);
+                return priceCluster.getRouter().isSelf(owner) ? localBucket
+                        : new RemoteBucket(owner, cacheName, key, configurationSupplier, localBucket,
+                        BucketListener.NOPE);
+            }
+
+            @Override
+            public Optional<Bucket> getProxy(String key) {
+                return getProxyConfiguration(key).map(configuration -> getProxy(key, () -> configuration));
+            }
+
+            @Override
+            public Optional<BucketConfiguration> getProxyConfiguration(String key) {
+                return localProxy.getConfiguration(key);
+            }
+        };
+    }
+
+    /**
+     * Consumes tokens sent by another node from a bucket of this node.
+     *
+     * @throws ServiceException {@link ErrorCode#UNKNOWN_RATE_LIMIT} if no bucket4j filter of this node has the
+     *                          cache and rate limit of the request
+     */
+    public RateLimitResult consumeLocally(RateLimitRequest request) throws ServiceException {
+        BucketConfiguration configuration = configurations.getOrDefault(request.getCacheName(), List.of()).stream()
+                .filter(candidate -> RateLimitRequest.Limit.of(candidate).equals(request.getLimits()))
+                .findFirst()
+                .orElseThrow(() -> new ServiceException(ErrorCode.UNKNOWN_RATE_LIMIT));
+        if (request.getKey() == null || request.getTokens() <= 0) {
+            throw new ServiceException(ErrorCode.UNKNOWN_RATE_LIMIT);
+        }
+        ConsumptionProbe probe = GridBucket.createLazyBucket(request.getKey(), () -> configuration,
+                        new LocalGridProxy(getCache(request.getCacheName())))
+                .tryConsumeAndReturnRemaining(request.getTokens());
+        return new RateLimitResult(probe.isConsumed(), probe.getRemainingTokens(), probe.getNanosToWaitForRefill());
+    }
+
+    private Cache<String, GridBucketState> getCache(String cacheName) {
+        Cache<String, GridBucketState> cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            throw new IllegalStateException("No cache named " + cacheName + " for the rate limit buckets");
+        }
+        return cache;
+    }
+
+    /**
+     * @return the configuration the bucket4j filter builds for the rate limit
+     */
+    private static BucketConfiguration toConfiguration(RateLimit rateLimit) {
+        ConfigurationBuilder builder = Bucket4j.configurationBuilder();
+        for (BandWidth bandWidth : rateLimit.getBandwidths()) {
+            Bandwidth bandwidth = bandWidth.getFixedRefillInterval() > 0
+                    ? Bandwidth.classic(bandWidth.getCapacity(), Refill.intervally(bandWidth.getCapacity(),
+                    Duration.of(bandWidth.getFixedRefillInterval(), bandWidth.getFixedRefillIntervalUnit())))
+                    : Bandwidth.simple(bandWidth.getCapacity(), Duration.of(bandWidth.getTime(), bandWidth.getUnit()));
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The buckets of this node, in its JCache. Runs the asynchronous calls right away, as the cache is in memory.
+     */
+    private static final class LocalGridProxy implements GridProxy<String> {
+
+        private final JCacheProxy<String> cacheProxy;
+
+        private LocalGridProxy(Cache<String, GridBucketState> cache) {
+            this.cacheProxy = new JCacheProxy<>(cache);
+        }
+
+        @Override
+        public <T extends Serializable> CommandResult<T> execute(String key, GridCommand<T> command) {
+            return cacheProxy.execute(key, command);
+        }
+
+        @Override
+        public void createInitialState(String key, BucketConfiguration configuration) {
+            cacheProxy.createInitialState(key, configuration);
+        }
+
+        @Override
+        public <T extends Serializable> T createInitialStateAndExecute(String key, BucketConfiguration configuration,
+                                                                      GridCommand<T> command) {
+            return cacheProxy.createInitialStateAndExecute(key, configuration, command);
+        }
+
+        @Override
+        public Optional<BucketConfiguration> getConfiguration(String key) {
+            return cacheProxy.getConfiguration(key);
+        }
+
+        @Override
+        public <T extends Serializable> CompletableFuture<CommandResult<T>> executeAsync(String key,
+                                                                                       GridCommand<T> command) {
+            return runNow(() -> execute(key, command));
+        }
+
+        @Override
+        public <T extends Serializable> CompletableFuture<T> createInitialStateAndExecuteAsync(
+                String key, BucketConfiguration configuration, GridCommand<T> command) {
+            return runNow(() -> createInitialStateAndExecute(key, configuration, command));
+        }
+
+        @Override
+        public boolean isAsyncModeSupported() {
+            return true;
+        }
+
+        private static <T> CompletableFuture<T> runNow(Supplier<T> call) {
+            try {
+                return CompletableFuture.completedFuture(call.get());
+            } catch (RuntimeException exception) {
+                return CompletableFuture.failedFuture(exception);
+            }
+        }
+    }
+
+    /**
+     * Bucket owned by another node, consuming its tokens there, or from the local bucket when that node fails.
+     */
+    private final class RemoteBucket implements Bucket {
+
+        private final String owner;
+        private final String cacheName;
+        private final String key;
+        private final Supplier<BucketConfiguration> configurationSupplier;
+        private final Bucket localBucket;
+        private final BucketListener listener;
+
+        private RemoteBucket(String owner, String cacheName, String key,
+                             Supplier<BucketConfiguration> configurationSupplier, Bucket localBucket,
+                             BucketListener listener) {
+            this.owner = owner;
+            this.cacheName = cacheName;
+            this.key = key;
+            this.configurationSupplier = configurationSupplier;
+            this.localBucket = localBucket;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean tryConsume(long tokens) {
+            return tryConsumeAndReturnRemaining(tokens).isConsumed();
+        }
+
+        @Override
+        public ConsumptionProbe tryConsumeAndReturnRemaining(long tokens) {
+            if (tokens <= 0) {
+                throw new IllegalArgumentException("The tokens to consume must be positive");
+            }
+            RateLimitResult result;
+            try {
+                result = priceCluster.getClient().consumeRateLimitTokens(owner, new RateLimitRequest(cacheName, key,
+                        tokens, RateLimitRequest.Limit.of(configurationSupplier.get())));
+            } catch (ServiceException exception) {
+                log.warn("Could not reach {} for the rate limit bucket {}, using a local bucket", owner, key,
+                        exception);
+                return localBucket.tryConsumeAndReturnRemaining(tokens);
+            }
+            if (result.isConsumed()) {
+                listener.onConsumed(tokens);
+                return ConsumptionProbe.consumed(result.getRemainingTokens());
+            }
+            listener.onRejected(tokens);
+            return ConsumptionProbe.rejected(result.getRemainingTokens(), result.getNanosToWaitForRefill());
+        }
+
+        @Override
+        public boolean isAsyncModeSupported() {
+            return true;
+        }
+
+        /**
+         * Consumes on the threads of the {@link PriceCluster}.
+         */
+        @Override
+        public AsyncBucket asAsync() {
+            return new AsyncBucket() {
+                @Override
+                public CompletableFuture<Boolean> tryConsume(long tokens) {
+                    return priceCluster.callAsync(() -> RemoteBucket.this.tryConsume(tokens));
+                }
+
+                @Override
+                public CompletableFuture<ConsumptionProbe> tryConsumeAndReturnRemaining(long tokens) {
+                    return priceCluster.callAsync(() -> RemoteBucket.this.tryConsumeAndReturnRemaining(tokens));
+                }
+
+                @Override
+                public CompletableFuture<EstimationProbe> estimateAbilityToConsume(long tokens) {
+                    return localBucket.asAsync().estimateAbilityToConsume(tokens);
+                }
+
+                @Override
+                public CompletableFuture<Long> tryConsumeAsMuchAsPossible() {
+                    return localBucket.asAsync().tryConsumeAsMuchAsPossible();
+                }
+
+                @Override
+                public CompletableFuture<Long> tryConsumeAsMuchAsPossible(long limit) {
+                    return localBucket.asAsync().tryConsumeAsMuchAsPossible(limit);
+                }
+
+                @Override
+                public CompletableFuture<Void> addTokens(long tokensToAdd) {
+                    return localBucket.asAsync().addTokens(tokensToAdd);
+                }
+
+                @Override
+                public CompletableFuture<Void> replaceConfiguration(BucketConfiguration newConfiguration) {
+                    return localBucket.asAsync().replaceConfiguration(newConfiguration);
+                }
+            };
+        }
+
+        @Override
+        public Bucket toListenable(BucketListener listener) {
+            return new RemoteBucket(owner, cacheName, key, configurationSupplier, localBucket.toListenable(listener),
+                    listener);
+        }
+
+        @Override
+        public BlockingBucket asScheduler() {
+            return localBucket.asScheduler();
+        }
+
+        @Override
+        public AsyncScheduledBucket asAsyncScheduler() {
+            return localBucket.asAsyncScheduler();
+        }
+
+        @Override
+        public EstimationProbe estimateAbilityToConsume(long tokens) {
+            return localBucket.estimateAbilityToConsume(tokens);
+        }
+
+        @Override
+        public long tryConsumeAsMuchAsPossible() {
+            return localBucket.tryConsumeAsMuchAsPossible();
+        }
+
+        @Override
+        public long tryConsumeAsMuchAsPossible(long limit) {
+            return localBucket.tryConsumeAsMuchAsPossible(limit);
+        }
+
+        @Override
+        public void addTokens(long tokensToAdd) {
+            localBucket.addTokens(tokensToAdd);
+        }
+
+        @Override
+        public long getAvailableTokens() {
+            return localBucket.getAvailableTokens();
+        }
+
+        @Override
+        public void replaceConfiguration(BucketConfiguration newConfiguration) {
+            localBucket.replaceConfiguration(newConfiguration);
+        }
+
+        @Override
+        public BucketState createSnapshot() {
+            return localBucket.createSnapshot();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.constants.ErrorCode;
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.domain.CryptoStats;
+import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.service.NormalizedRangeQuery;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link ShardClient} calling the {@link ShardController} of the other nodes over HTTP.
+ */
+@Component
+public class HttpShardClient implements ShardClient {
+
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(HttpHeaders.ACCEPT,
+            HttpHeaders.ACCEPT_ENCODING, HttpHeaders.IF_NONE_MATCH);
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(HttpHeaders.CONNECTION.toLowerCase(),
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(), "keep-alive", HttpHeaders.DATE.toLowerCase());
+
+    private final RestTemplate restTemplate;
+    private final RestTemplate forwardingTemplate;
+
+    public HttpShardClient(RestTemplateBuilder restTemplateBuilder, PriceProperties priceProperties) {
+        RestTemplateBuilder builder = restTemplateBuilder
+                .setConnectTimeout(priceProperties.getClusterTimeout())
+                .setReadTimeout(priceProperties.getClusterTimeout());
+        if (StringUtils.hasText(priceProperties.getClusterSecret())) {
+            builder = builder.defaultHeader(ShardController.SECRET_HEADER, priceProperties.getClusterSecret());
+        }
+        this.restTemplate = builder.build();
+        this.forwardingTemplate = builder.errorHandler(new ResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+
+            @Override
+            public void handleError(ClientHttpResponse response) {
+            }
+        }).build();
+    }
+
+    @Override
+    public ShardStatus getStatus(String node) throws ServiceException {
+        try {
+            return restTemplate.getForObject(node + ShardController.STATUS_PATH, ShardStatus.class);
+        } catch (RestClientException exception) {
+            throw toServiceException(exception);
+        }
+    }
+
+    @Override
+    public List<CryptoNormalizedRange> getNormalizedRanges(String node, NormalizedRangeQuery query)
+            throws ServiceException {
+        try {
+            CryptoNormalizedRange[] ranges = restTemplate.postForObject(node + ShardController.NORMALIZED_RANGES_PATH,
+                    query, CryptoNormalizedRange[].class);
+            return ranges == null ? List.of() : Arrays.asList(ranges);
+        } catch (RestClientException exception) {
+            throw toServiceException(exception);
+        }
+    }
+
+    @Override
+    public List<CryptoStats> getStats(String node, Collection<String> symbols, Collection<String> statistics)
+            throws ServiceException {
+        URI uri = UriComponentsBuilder.fromHttpUrl(node + ShardController.STATS_PATH)
+                .queryParam("symbols", symbols.toArray())
+                .queryParam("stats", statistics.toArray())
+                .encode()
+                .build()
+                .toUri();
+        try {
+            CryptoStats[] stats = restTemplate.getForObject(uri, CryptoStats[].class);
+            return stats == null ? List.of() : Arrays.asList(stats);
+        } catch (RestClientException exception) {
+            throw toServiceException(exception);
+        }
+    }
+
+    @Override
+    public RateLimitResult consumeRateLimitTokens(String node, RateLimitRequest request) throws ServiceException {
+        try {
+            RateLimitResult result = restTemplate.postForObject(node + ShardController.RATE_LIMITS_PATH, request,
+                    RateLimitResult.class);
+            if (result == null) {
+                throw new ServiceException(ErrorCode.SHARD_UNAVAILABLE);
+            }
+            return result;
+        } catch (RestClientException exception) {
+            throw toServiceException(exception);
+        }
+    }
+
+    /**
+     * Sends a request for a symbol of another node to that node and copies its response back, status, headers and
+     * body as they are.
+     *
+     * @param path path of the request within the servlet mapping, like {@code /prices/BTC/minPrice}
+     */
+    public void forward(String node, String path, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        URI uri = getForwardUri(node, path, request.getQueryString());
+        try {
+            forwardingTemplate.execute(uri, HttpMethod.GET, forwarded -> {
+                for (String header : FORWARDED_REQUEST_HEADERS) {
+                    String value = request.getHeader(header);
+                    if (value != null) {
+                        forwarded.getHeaders().set(header, value);
+                    }
+                }
+            }, answer -> {
+                response.setStatus(answer.getRawStatusCode());
+                answer.getHeaders().forEach((header, values) -> {
+                    if (!HOP_BY_HOP_HEADERS.contains(header.toLowerCase())) {
+                        values.forEach(value -> response.addHeader(header, value));
+                    }
+                });
+                StreamUtils.copy(answer.getBody(), response.getOutputStream());
+                return null;
+            });
+        } catch (RestClientException exception) {
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, ErrorCode.SHARD_UNAVAILABLE.message);
+            }
+        }
+    }
+
+    /**
+     * @param path  decoded path of the request, encoded again here
+     * @param query query of the request as it was sent, kept as it is unless it is not validly encoded
+     */
+    static URI getForwardUri(String node, String path, String query) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(node + ShardController.FORWARD_PATH)
+                .path(UriUtils.encodePath(path, StandardCharsets.UTF_8));
+        try {
+            return builder.cloneBuilder().query(query).build(true).toUri();
+        } catch (IllegalArgumentException exception) {
+            return builder.query(UriUtils.encodeQuery(query, StandardCharsets.UTF_8)).build(true).toUri();
+        }
+    }
+
+    static ServiceException toServiceException(RestClientException exception) {
+        if (exception instanceof HttpStatusCodeException) {
+            HttpHeaders headers = ((HttpStatusCodeException) exception).getResponseHeaders();
+            String errorCode = headers == null ? null : headers.getFirst(ShardController.ERROR_CODE_HEADER);
+            if (errorCode != null) {
+                try {
+                    return new ServiceException(ErrorCode.valueOf(errorCode), exception);
+                } catch (IllegalArgumentException unknownErrorCode) {
+                    // Answered by a node of another version
+                    return new ServiceException(ErrorCode.SHARD_UNAVAILABLE, exception);
+                }
+            }
+        }
+        return new ServiceException(ErrorCode.SHARD_UNAVAILABLE, exception);
+    }
+}
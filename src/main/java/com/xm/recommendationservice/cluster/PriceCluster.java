@@ -0,0 +1,236 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.constants.ErrorCode;
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.domain.CryptoStats;
+import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.repository.PriceRepository;
+import com.xm.recommendationservice.service.NormalizedRangeQuery;
+import com.xm.recommendationservice.service.RollingNormalizedRangeRankings;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The nodes sharing the symbols, see {@link ShardRouter}. Cross-symbol requests are scattered to every node, each
+ * answering for its own symbols, and gathered on the node that got the request. Not clustered, a single node
+ * answers everything itself and nothing below leaves the process.
+ * <p>
+ * The other nodes are polled every {@link PriceProperties#getClusterPollInterval()} for their {@link ShardStatus}, so
+ * {@link #getVersion()} changes, and the cached results with it, shortly after any node got new prices.
+ */
+@Component
+@Slf4j
+public class PriceCluster implements DisposableBean {
+
+    private final PriceRepository priceRepository;
+    private final ShardClient shardClient;
+    private final ShardRouter router;
+    private final String instance = UUID.randomUUID().toString();
+    private final ExecutorService callers;
+    private final ScheduledExecutorService poller;
+    /**
+     * Last status of every other node, only used by the poller.
+     */
+    private final Map<String, ShardStatus> statuses = new HashMap<>();
+    private volatile long remoteChanges;
+
+    public PriceCluster(PriceRepository priceRepository, PriceProperties priceProperties, ShardRouter router,
+                        ShardClient shardClient) {
+        this.priceRepository = priceRepository;
+        this.shardClient = shardClient;
+        this.router = router;
+        if (!router.isClustered()) {
+            this.callers = null;
+            this.poller = null;
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.callers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "price-shards-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-shards-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = priceProperties.getClusterPollInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::pollStatuses, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return this node alone, answering everything itself, as without {@code prices.cluster-nodes}
+     */
+    public static PriceCluster singleNode(PriceRepository priceRepository) {
+        PriceProperties priceProperties = new PriceProperties();
+        return new PriceCluster(priceRepository, priceProperties, new ShardRouter(priceProperties),
+                new NoOtherNodes());
+    }
+
+    public boolean isClustered() {
+        return router.isClustered();
+    }
+
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    public ShardClient getClient() {
+        return shardClient;
+    }
+
+    /**
+     * @return number that changes every time the prices of any node change
+     */
+    public long getVersion() {
+        return priceRepository.getVersion() + remoteChanges;
+    }
+
+    public ShardStatus getLocalStatus() {
+        return new ShardStatus(instance, priceRepository.getVersion(),
+                RollingNormalizedRangeRankings.getNewestTimestamp(priceRepository.findAll()));
+    }
+
+    /**
+     * @return epoch millis of the newest price of all nodes, {@link Long#MIN_VALUE} when there are none
+     */
+    public long getNewestTimestamp() throws ServiceException {
+        long newest = Long.MIN_VALUE;
+        for (ShardStatus status : gather(node -> List.of(getLocalStatus()),
+                node -> List.of(shardClient.getStatus(node)))) {
+            newest = Math.max(newest, status.getNewestTimestamp());
+        }
+        return newest;
+    }
+
+    /**
+     * Asks every other node in parallel while this node answers on the calling thread.
+     *
+     * @return the answers of all nodes, in the order of the nodes
+     * @throws ServiceException the first error of a node, the calls of the other nodes are cancelled
+     */
+    public <T> List<T> gather(ShardCall<? extends Collection<T>> local, ShardCall<? extends Collection<T>> remote)
+            throws ServiceException {
+        if (!router.isClustered()) {
+            return new ArrayList<>(local.call(null));
+        }
+        Map<String, CompletableFuture<? extends Collection<T>>> remoteAnswers = new HashMap<>();
+        for (String node : router.getNodes()) {
+            if (!router.isSelf(node)) {
+                remoteAnswers.put(node, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return remote.call(node);
+                    } catch (ServiceException exception) {
+                        throw new CompletionException(exception);
+                    }
+                }, callers));
+            }
+        }
+        boolean gathered = false;
+        try {
+            Collection<T> localAnswer = local.call(router.getSelf());
+            List<T> answer = new ArrayList<>();
+            for (String node : router.getNodes()) {
+                answer.addAll(router.isSelf(node) ? localAnswer : join(remoteAnswers.get(node)));
+            }
+            gathered = true;
+            return answer;
+        } finally {
+            if (!gathered) {
+                remoteAnswers.values().forEach(remoteAnswer -> remoteAnswer.cancel(true));
+            }
+        }
+    }
+
+    /**
+     * Runs a call to another node on the threads asking the nodes, only in a cluster.
+     */
+    public <T> CompletableFuture<T> callAsync(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, callers);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws ServiceException {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof ServiceException) {
+                throw (ServiceException) exception.getCause();
+            }
+            throw new ServiceException(ErrorCode.SHARD_UNAVAILABLE, exception.getCause());
+        }
+    }
+
+    void pollStatuses() {
+        for (String node : router.getNodes()) {
+            if (router.isSelf(node)) {
+                continue;
+            }
+            ShardStatus status = null;
+            try {
+                status = shardClient.getStatus(node);
+            } catch (ServiceException exception) {
+                log.debug("Could not get the status of {}", node, exception);
+            }
+            if (!Objects.equals(status, statuses.put(node, status))) {
+                remoteChanges++;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (router.isClustered()) {
+            poller.shutdownNow();
+            callers.shutdownNow();
+        }
+    }
+
+    /**
+     * Client of a {@link #singleNode(PriceRepository) single node}, which never calls another one.
+     */
+    private static final class NoOtherNodes implements ShardClient {
+
+        @Override
+        public ShardStatus getStatus(String node) {
+            throw notClustered(node);
+        }
+
+        @Override
+        public List<CryptoNormalizedRange> getNormalizedRanges(String node, NormalizedRangeQuery query) {
+            throw notClustered(node);
+        }
+
+        @Override
+        public List<CryptoStats> getStats(String node, Collection<String> symbols, Collection<String> statistics) {
+            throw notClustered(node);
+        }
+
+        @Override
+        public RateLimitResult consumeRateLimitTokens(String node, RateLimitRequest request) {
+            throw notClustered(node);
+        }
+
+        private static IllegalStateException notClustered(String node) {
+            return new IllegalStateException("Not clustered, cannot call " + node);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.xm.recommendationservice.cluster;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tokens to consume from the rate limit bucket of {@link #key}, sent to the node owning it. The {@link #limits}
+ * only tell which of the rate limits configured for the cache the bucket has, the owner builds it from its own
+ * configuration.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitRequest {
+
+    private String cacheName;
+    private String key;
+    private long tokens;
+    private List<Limit> limits;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        private long capacity;
+        private long refillTokens;
+        private long refillPeriodNanos;
+
+        public static List<Limit> of(BucketConfiguration configuration) {
+            List<Limit> limits = new ArrayList<>();
+            for (Bandwidth bandwidth : configuration.getBandwidths()) {
+                limits.add(new Limit(bandwidth.getCapacity(), bandwidth.getRefillTokens(),
+                        bandwidth.getRefillPeriodNanos()));
+            }
+            return limits;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.xm.recommendationservice.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Answer of the node owning a rate limit bucket to a {@link RateLimitRequest}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitResult {
+
+    private boolean consumed;
+    private long remainingTokens;
+    /**
+     * Time until the rejected tokens are available, 0 when consumed.
+     */
+    private long nanosToWaitForRefill;
+}
@@ -0,0 +1,12 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.exception.ServiceException;
+
+/**
+ * Part of a request answered by one node of the cluster.
+ */
+@FunctionalInterface
+public interface ShardCall<T> {
+
+    T call(String node) throws ServiceException;
+}
@@ -0,0 +1,29 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.domain.CryptoStats;
+import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.service.NormalizedRangeQuery;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Calls the internal endpoints of another node of the cluster, which only answer for the symbols of that node.
+ * Failures of the node itself are reported as {@link com.xm.recommendationservice.constants.ErrorCode#SHARD_UNAVAILABLE},
+ * errors of the request with the {@link com.xm.recommendationservice.constants.ErrorCode} the node answered.
+ */
+public interface ShardClient {
+
+    ShardStatus getStatus(String node) throws ServiceException;
+
+    List<CryptoNormalizedRange> getNormalizedRanges(String node, NormalizedRangeQuery query) throws ServiceException;
+
+    List<CryptoStats> getStats(String node, Collection<String> symbols, Collection<String> statistics)
+            throws ServiceException;
+
+    /**
+     * Consumes tokens from the rate limit bucket owned by the node.
+     */
+    RateLimitResult consumeRateLimitTokens(String node, RateLimitRequest request) throws ServiceException;
+}
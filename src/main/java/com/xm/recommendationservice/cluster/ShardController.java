@@ -0,0 +1,82 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.domain.CryptoStats;
+import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.service.NormalizedRangeQuery;
+import com.xm.recommendationservice.service.PriceService;
+import io.swagger.v3.oas.annotations.Hidden;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Endpoints the nodes of the cluster call each other on, each answering only for the symbols of this node.
+ * {@link ShardFilter} only lets them through on {@link com.xm.recommendationservice.config.PriceProperties#getClusterPort()}.
+ */
+@Hidden
+@RestController
+@RequiredArgsConstructor
+public class ShardController {
+
+    static final String INTERNAL_PATH = "/internal/";
+    static final String STATUS_PATH = "/internal/shard/status";
+    static final String NORMALIZED_RANGES_PATH = "/internal/shard/normalizedRanges";
+    static final String STATS_PATH = "/internal/shard/stats";
+    static final String RATE_LIMITS_PATH = "/internal/shard/rateLimits";
+    /**
+     * Prefix of the requests for a symbol forwarded by another node, served as the public endpoint after it.
+     */
+    static final String FORWARD_PATH = "/internal/forward";
+    static final String ERROR_CODE_HEADER = "X-Error-Code";
+    /**
+     * Carries {@link com.xm.recommendationservice.config.PriceProperties#getClusterSecret()} on every internal request.
+     */
+    static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private final PriceService priceService;
+    private final PriceCluster priceCluster;
+    private final ClusterRateLimits clusterRateLimits;
+
+    @GetMapping(STATUS_PATH)
+    public ShardStatus getStatus() {
+        return priceCluster.getLocalStatus();
+    }
+
+    @PostMapping(NORMALIZED_RANGES_PATH)
+    public Collection<CryptoNormalizedRange> getNormalizedRanges(@RequestBody NormalizedRangeQuery query) {
+        return priceService.getLocalNormalizedRanges(query);
+    }
+
+    @GetMapping(STATS_PATH)
+    public List<CryptoStats> getStats(
+            @RequestParam(value = "symbols") List<String> symbols,
+            @RequestParam(value = "stats", required = false, defaultValue = "") List<String> stats)
+            throws ServiceException {
+        return priceService.getLocalStats(symbols, stats);
+    }
+
+    @PostMapping(RATE_LIMITS_PATH)
+    public RateLimitResult consumeRateLimitTokens(@RequestBody RateLimitRequest request) throws ServiceException {
+        return clusterRateLimits.consumeLocally(request);
+    }
+
+    /**
+     * Tells the calling node which error to raise, the message alone is ambiguous.
+     */
+    @ExceptionHandler(ServiceException.class)
+    public ResponseEntity<String> handleServiceException(ServiceException exception) {
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .header(ERROR_CODE_HEADER, exception.getErrorCode().name())
+                .body(exception.getMessage());
+    }
+}
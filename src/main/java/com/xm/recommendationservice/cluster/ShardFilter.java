@@ -0,0 +1,137 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletPath;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends the requests for a symbol of another node to its owner, which answers them from its own prices and cache.
+ * Runs after the rate limit filter, so a request counts once, on the node that got it; the owner serves it under
+ * the public path only past that filter, so it is not limited again. Internal requests are only accepted on
+ * {@link PriceProperties#getClusterPort()} with {@link PriceProperties#getClusterSecret()}, the other ports answer
+ * them with 404, requests without the secret with 403. The cluster port answers every other request with 404, so
+ * it cannot be used to get past the rate limits.
+ */
+@Component
+public class ShardFilter extends OncePerRequestFilter {
+
+    private static final Pattern SYMBOL_PATH = Pattern.compile("/prices/([^/]+)/[^/]+");
+
+    private final PriceCluster priceCluster;
+    private final HttpShardClient shardClient;
+    private final int clusterPort;
+    private final byte[] clusterSecret;
+    private final String servletPrefix;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public ShardFilter(PriceCluster priceCluster, HttpShardClient shardClient, PriceProperties priceProperties,
+                       DispatcherServletPath dispatcherServletPath) {
+        this.priceCluster = priceCluster;
+        this.shardClient = shardClient;
+        this.clusterPort = priceProperties.getClusterPort();
+        this.clusterSecret = priceCluster.isClustered()
+                ? priceProperties.getClusterSecret().getBytes(StandardCharsets.UTF_8) : null;
+        this.servletPrefix = dispatcherServletPath.getPrefix();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String applicationPath = urlPathHelper.getPathWithinApplication(request);
+        String path = applicationPath.startsWith(servletPrefix + "/")
+                ? applicationPath.substring(servletPrefix.length()) : null;
+        boolean internalPath = path != null && path.startsWith(ShardController.INTERNAL_PATH);
+        if (internalPath != (priceCluster.isClustered() && request.getLocalPort() == clusterPort)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (path == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (internalPath) {
+            if (!hasClusterSecret(request)) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            } else if (path.startsWith(ShardController.FORWARD_PATH + "/")) {
+                chain.doFilter(new ForwardedRequest(request, servletPrefix,
+                        path.substring(ShardController.FORWARD_PATH.length())), response);
+            } else {
+                chain.doFilter(request, response);
+            }
+            return;
+        }
+        if (priceCluster.isClustered()) {
+            Matcher matcher = SYMBOL_PATH.matcher(path);
+            if (matcher.matches()) {
+                String owner = priceCluster.getRouter()
+                        .getOwner(UriUtils.decode(matcher.group(1), StandardCharsets.UTF_8));
+                if (!priceCluster.getRouter().isSelf(owner)) {
+                    shardClient.forward(owner, path, request, response);
+                    return;
+                }
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private boolean hasClusterSecret(HttpServletRequest request) {
+        String secret = request.getHeader(ShardController.SECRET_HEADER);
+        return secret != null && MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), clusterSecret);
+    }
+
+    /**
+     * A request received under {@link ShardController#FORWARD_PATH}, seen by the rest of the chain as the public
+     * request after it.
+     */
+    private static final class ForwardedRequest extends HttpServletRequestWrapper {
+
+        private final String requestUri;
+        private final String servletPrefix;
+        private final String path;
+
+        private ForwardedRequest(HttpServletRequest request, String servletPrefix, String path) {
+            super(request);
+            String forwardedUri = request.getRequestURI();
+            int prefixLength = request.getContextPath().length() + servletPrefix.length();
+            this.requestUri = forwardedUri.substring(0, prefixLength)
+                    + forwardedUri.substring(prefixLength + ShardController.FORWARD_PATH.length());
+            this.servletPrefix = servletPrefix;
+            this.path = path;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return requestUri;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            StringBuffer url = super.getRequestURL();
+            return url.replace(url.length() - super.getRequestURI().length(), url.length(), requestUri);
+        }
+
+        @Override
+        public String getServletPath() {
+            return servletPrefix.isEmpty() ? path : super.getServletPath();
+        }
+
+        @Override
+        public String getPathInfo() {
+            return servletPrefix.isEmpty() ? null : path;
+        }
+    }
+}
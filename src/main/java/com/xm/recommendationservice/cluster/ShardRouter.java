@@ -0,0 +1,67 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * Tells which node of the {@link PriceProperties#getClusterNodes()} owns a symbol. Symbols are hash-partitioned
+ * over the nodes in their configured order, so every node agrees on the owner without asking the others. Changing
+ * the number of nodes moves most symbols, every node then has to be restarted with the same list.
+ */
+@Component
+public final class ShardRouter {
+
+    private final List<String> nodes;
+    private final String self;
+
+    public ShardRouter(PriceProperties priceProperties) {
+        this.nodes = List.copyOf(priceProperties.getClusterNodes());
+        this.self = priceProperties.getClusterNode();
+        if (!nodes.isEmpty() && !nodes.contains(self)) {
+            throw new IllegalArgumentException("prices.cluster-node must be one of prices.cluster-nodes");
+        }
+        if (!nodes.isEmpty() && !StringUtils.hasText(priceProperties.getClusterSecret())) {
+            throw new IllegalArgumentException("prices.cluster-secret must be set in a cluster");
+        }
+    }
+
+    public boolean isClustered() {
+        return !nodes.isEmpty();
+    }
+
+    /**
+     * @return all nodes, empty when not clustered
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return this node, {@code null} when not clustered
+     */
+    public String getSelf() {
+        return self;
+    }
+
+    public boolean isSelf(String node) {
+        return !isClustered() || self.equals(node);
+    }
+
+    /**
+     * @return node owning the symbol, this node when not clustered
+     */
+    public String getOwner(String symbol) {
+        if (!isClustered()) {
+            return self;
+        }
+        int hash = symbol.hashCode() * 0x9E3779B9;
+        return nodes.get(Math.floorMod(hash ^ (hash >>> 16), nodes.size()));
+    }
+
+    public boolean owns(String symbol) {
+        return isSelf(getOwner(symbol));
+    }
+}
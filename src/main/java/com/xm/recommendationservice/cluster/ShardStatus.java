@@ -0,0 +1,21 @@
+package com.xm.recommendationservice.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of the prices of one node, {@link #version} starts over when the node restarts as another {@link #instance}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardStatus {
+
+    private String instance;
+    private long version;
+    /**
+     * Epoch millis of the newest price of the symbols of the node, {@link Long#MIN_VALUE} when there are none.
+     */
+    private long newestTimestamp;
+}
@@ -0,0 +1,138 @@
+package com.xm.recommendationservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "prices")
+public class PriceProperties {
+
+    /**
+     * Folder with the {@code *_values.csv} files. When empty, the files packaged under {@code prices/}
+     * on the classpath are read once at startup.
+     */
+    private String directory;
+
+    /**
+     * Whether rows appended to the files of {@link #directory} and new files are picked up while running.
+     */
+    private boolean watch = true;
+
+    /**
+     * Folder for the binary snapshots of the files of {@link #directory}, loaded at startup instead of
+     * parsing the CSV files again. Snapshots are not used when empty.
+     */
+    private String snapshotDirectory;
+
+    /**
+     * Maximum size in bytes of the price columns kept in memory. Beyond it the columns of the least recently read
+     * symbols are paged out to {@link #columnDirectory} and read back from there when needed, while their min, max,
+     * oldest and newest price and candles stay in memory. No limit when 0.
+     */
+    private long residentColumnsMaxBytes;
+
+    /**
+     * Folder of the paged out price columns, a temporary folder when empty. Its {@code *.columns} files are deleted
+     * on shutdown.
+     */
+    private String columnDirectory;
+
+    /**
+     * Number of decimals of the normalized ranges, which are rounded up. At most 18.
+     */
+    private int normalizedRangeScale = 4;
+
+    /**
+     * Windows ending at the newest price whose normalized range rankings are kept up to date while prices
+     * are ingested. Rankings of other windows are computed when requested.
+     */
+    private List<Duration> rollingWindows = List.of(Duration.ofHours(24), Duration.ofDays(7), Duration.ofDays(30));
+
+    /**
+     * Number of threads computing the cross-symbol rankings, at most this many cores are used by them
+     * however many requests are served. 1 computes them on the request thread.
+     */
+    private int aggregationParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * Number of symbols from which the rankings are computed on {@link #aggregationParallelism} threads.
+     */
+    private int parallelAggregationThreshold = 256;
+
+    /**
+     * Maximum size in bytes of the serialized endpoint results cached for the current version of the prices.
+     */
+    private long responseCacheMaxBytes = 64L * 1024 * 1024;
+
+    /**
+     * Whether a gzip variant of the cached endpoint results is kept and sent to clients accepting it.
+     */
+    private boolean gzipResponses;
+
+    /**
+     * Number of price updates queued for a subscriber of the update stream. A subscriber that falls further
+     * behind gets a snapshot of the current state instead of the queued updates.
+     */
+    private int updatesQueueCapacity = 32;
+
+    /**
+     * Number of threads sending the price updates to the subscribers.
+     */
+    private int updatesSenderThreads = 2;
+
+    /**
+     * Time writing one event to a subscriber of the update stream may take. A subscriber whose client does not
+     * read for longer is dropped, and its sender thread is replaced until the write gives up.
+     */
+    private Duration updatesSendTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Time after which an update stream is closed, clients reconnect and start with a new snapshot.
+     */
+    private Duration updatesTimeout = Duration.ofHours(1);
+
+    /**
+     * Base URLs of the internal endpoints of every node of the cluster, in the same order on every node. Each node
+     * reads the prices of the symbols it owns and answers the other ones from their owners. A single node reads
+     * every symbol when empty.
+     */
+    private List<String> clusterNodes = new ArrayList<>();
+
+    /**
+     * Base URL of this node, one of {@link #clusterNodes}.
+     */
+    private String clusterNode;
+
+    /**
+     * Port of the internal endpoints the nodes of the cluster call each other on, opened only in a cluster.
+     */
+    private int clusterPort = 8081;
+
+    /**
+     * Shared by the nodes of the cluster and sent with every internal request, the internal endpoints reject the
+     * requests without it. Required in a cluster.
+     */
+    private String clusterSecret;
+
+    /**
+     * Time to connect to another node and to wait for its answer.
+     */
+    private Duration clusterTimeout = Duration.ofSeconds(2);
+
+    /**
+     * How often the other nodes are asked for the version of their prices, so the results cached for the whole
+     * cluster are dropped when any node got new prices.
+     */
+    private Duration clusterPollInterval = Duration.ofSeconds(1);
+
+    public void setNormalizedRangeScale(int normalizedRangeScale) {
+        if (normalizedRangeScale < 0 || normalizedRangeScale > 18) {
+            throw new IllegalArgumentException("The normalized range scale must be between 0 and 18");
+        }
+        this.normalizedRangeScale = normalizedRangeScale;
+    }
+}
@@ -5,7 +5,13 @@ public enum ErrorCode {
     CURRENCY_NOT_SUPPORTED_YET(-1, "This cryptocurrency is not yet supported by the service"),
     NO_SUCH_ELEMENT(-2, "No such element"),
     COMMON_IO_EXCEPTION(-3, "Something went wrong while reading the price data." +
-            " Contact your administrator.");
+            " Contact your administrator."),
+    INVALID_PAGE_REQUEST(-4, "The page cursor or limit is not valid"),
+    INVALID_PERIOD(-5, "The period is not valid"),
+    INVALID_STATISTIC(-6, "The requested statistic is not supported"),
+    INVALID_RESOLUTION(-7, "The candle resolution is not supported"),
+    SHARD_UNAVAILABLE(-8, "Some of the prices are temporarily unavailable, try again later"),
+    UNKNOWN_RATE_LIMIT(-9, "The rate limit is not configured on this node");
 
     public final int code;
     public final String message;
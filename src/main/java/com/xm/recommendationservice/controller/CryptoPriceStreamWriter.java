@@ -0,0 +1,53 @@
+package com.xm.recommendationservice.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.xm.recommendationservice.domain.CryptoPrice;
+import com.xm.recommendationservice.service.PricePage;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a {@link PricePage} as a JSON array one price at a time, so large periods are sent
+ * in chunks instead of being collected into a list first.
+ */
+@Component
+public class CryptoPriceStreamWriter {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter priceWriter;
+
+    public CryptoPriceStreamWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.priceWriter = objectMapper.writerFor(CryptoPrice.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public ResponseEntity<StreamingResponseBody> write(PricePage page) {
+        StreamingResponseBody body = outputStream -> writeTo(page, outputStream);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(body);
+    }
+
+    void writeTo(PricePage page, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartArray();
+            for (CryptoPrice price : page) {
+                priceWriter.writeValue(generator, price);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
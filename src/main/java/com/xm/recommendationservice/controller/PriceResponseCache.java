@@ -0,0 +1,289 @@
+package com.xm.recommendationservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xm.recommendationservice.cluster.PriceCluster;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.constants.ErrorCode;
+import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.service.PricePage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the results of the {@link PricesController} endpoints for the current version of the price data,
+ * already serialized to JSON, so a cached response is written without running Jackson again. With
+ * {@link PriceProperties#isGzipResponses()} a gzip variant of larger responses is kept as well and sent
+ * to clients accepting it. A {@link PricePage} is cached as its bounds and ETag only, its body is streamed from the
+ * price columns again for every response.
+ * <p>
+ * Entries are not expired by time: the cache is emptied as soon as a request sees a newer
+ * {@link PriceCluster#getVersion()}, and bounded by {@link PriceProperties#getResponseCacheMaxBytes()} in between.
+ * Concurrent requests missing the same entry load it only once.
+ * <p>
+ * The ETag of a response is the MD5 of its content, computed once when it is cached. Versions differ between
+ * replicas and start over after a restart, a hash does not, so a client sending the ETag back in
+ * {@code If-None-Match} gets a 304 without a body from any replica as long as the result did not change. The result
+ * is looked up first all the same, usually in the cache, so an invalid request gets its error and not a 304.
+ * <p>
+ * Hits, misses and evictions are published as the {@code cache.*} meters of the {@value #CACHE_NAME} cache.
+ */
+@Component
+public class PriceResponseCache {
+
+    private static final String CACHE_NAME = "price-responses";
+    private static final int GZIP_MIN_SIZE = 1024;
+    private static final String GZIP = "gzip";
+    private static final int PAGE_RESPONSE_SIZE = 128;
+
+    private final PriceCluster priceCluster;
+    private final ObjectMapper objectMapper;
+    private final CryptoPriceStreamWriter cryptoPriceStreamWriter;
+    private final boolean gzipResponses;
+    private final Cache<List<Object>, CachedResponse> cache;
+    private volatile long cachedVersion;
+
+    public PriceResponseCache(PriceCluster priceCluster, PriceProperties priceProperties, ObjectMapper objectMapper,
+                              CryptoPriceStreamWriter cryptoPriceStreamWriter, MeterRegistry meterRegistry) {
+        this.priceCluster = priceCluster;
+        this.objectMapper = objectMapper;
+        this.cryptoPriceStreamWriter = cryptoPriceStreamWriter;
+        this.gzipResponses = priceProperties.isGzipResponses();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(priceProperties.getResponseCacheMaxBytes())
+                .weigher((List<Object> key, CachedResponse response) -> response.size())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * @param key the endpoint and its parameters
+     * @return the cached or loaded result as JSON, or {@code null} when the client already has the same result
+     * and the response was set to 304
+     */
+    public ResponseEntity<byte[]> get(WebRequest request, Loader<?> loader, Object... key) throws ServiceException {
+        JsonResponse response = (JsonResponse) getOrLoad(priceCluster.getVersion(), Arrays.asList(key),
+                () -> render(loader.load()));
+        if (request.checkNotModified(response.eTag)) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (response.gzip != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(response.gzip);
+        }
+        return builder.body(response.json);
+    }
+
+    /**
+     * @param key the endpoint and its parameters
+     * @return the cached or loaded page, or {@code null} when the client already has the same page and the response
+     * was set to 304
+     */
+    public PricePage getPage(WebRequest request, Loader<PricePage> loader, Object... key) throws ServiceException {
+        PageResponse response = (PageResponse) getOrLoad(priceCluster.getVersion(), Arrays.asList(key),
+                () -> digest(loader.load()));
+        return request.checkNotModified(response.eTag) ? null : response.page;
+    }
+
+    private CachedResponse getOrLoad(long version, List<Object> key, Loader<? extends CachedResponse> loader)
+            throws ServiceException {
+        if (version > cachedVersion) {
+            evictOlderThan(version);
+        }
+        List<Object> versionedKey = new ArrayList<>(key.size() + 1);
+        versionedKey.add(version);
+        versionedKey.addAll(key);
+        try {
+            return cache.get(versionedKey, ignored -> {
+                try {
+                    return loader.load();
+                } catch (ServiceException exception) {
+                    throw new LoadException(exception);
+                }
+            });
+        } catch (LoadException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    /**
+     * Entries are keyed by version as well, so a result loaded for an older version while evicting
+     * is never returned for a newer one.
+     */
+    private synchronized void evictOlderThan(long version) {
+        if (version > cachedVersion) {
+            cachedVersion = version;
+            cache.invalidateAll();
+        }
+    }
+
+    private JsonResponse render(Object result) throws ServiceException {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(result);
+            byte[] gzip = null;
+            if (gzipResponses && json.length >= GZIP_MIN_SIZE) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+                try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+                    gzipStream.write(json);
+                }
+                gzip = compressed.toByteArray();
+            }
+            return new JsonResponse(json, gzip, toETag(DigestUtils.md5DigestAsHex(json)));
+        } catch (IOException exception) {
+            throw new ServiceException(ErrorCode.COMMON_IO_EXCEPTION, exception);
+        }
+    }
+
+    /**
+     * Hashes the page as {@link CryptoPriceStreamWriter} writes it, along with its next cursor, without keeping the
+     * JSON.
+     */
+    private PageResponse digest(PricePage page) throws ServiceException {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            cryptoPriceStreamWriter.writeTo(page, new DigestOutputStream(OutputStream.nullOutputStream(), md5));
+            if (page.getNextCursor() != null) {
+                md5.update(page.getNextCursor().getBytes(StandardCharsets.UTF_8));
+            }
+            return new PageResponse(page, toETag(String.format("%032x", new BigInteger(1, md5.digest()))));
+        } catch (IOException exception) {
+            throw new ServiceException(ErrorCode.COMMON_IO_EXCEPTION, exception);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("MD5 is not available", exception);
+        }
+    }
+
+    /**
+     * @return whether the {@code Accept-Encoding} header accepts gzip, by name or by {@code *}, with a quality
+     * above 0
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            if (name.equalsIgnoreCase(GZIP)) {
+                gzipQuality = getQuality(parameters);
+            } else if (name.equals("*")) {
+                anyQuality = getQuality(parameters);
+            }
+        }
+        Double quality = gzipQuality != null ? gzipQuality : anyQuality;
+        return quality != null && quality > 0;
+    }
+
+    /**
+     * @return the {@code q} parameter, 1 when missing and 0 when invalid
+     */
+    private static double getQuality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q'
+                    && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException exception) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static String toETag(String hash) {
+        return "W/\"" + hash + "\"";
+    }
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws ServiceException;
+    }
+
+    /**
+     * Carries the checked exception of a {@link Loader} through the cache.
+     */
+    private static final class LoadException extends RuntimeException {
+
+        private LoadException(ServiceException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ServiceException getCause() {
+            return (ServiceException) super.getCause();
+        }
+    }
+
+    private abstract static class CachedResponse {
+
+        final String eTag;
+
+        private CachedResponse(String eTag) {
+            this.eTag = eTag;
+        }
+
+        abstract int size();
+    }
+
+    private static final class JsonResponse extends CachedResponse {
+
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private JsonResponse(byte[] json, byte[] gzip, String eTag) {
+            super(eTag);
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        @Override
+        int size() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+    /**
+     * Holds no bytes of its own, the page only refers to the columns of the current version.
+     */
+    private static final class PageResponse extends CachedResponse {
+
+        private final PricePage page;
+
+        private PageResponse(PricePage page, String eTag) {
+            super(eTag);
+            this.page = page;
+        }
+
+        @Override
+        int size() {
+            return PAGE_RESPONSE_SIZE;
+        }
+    }
+}
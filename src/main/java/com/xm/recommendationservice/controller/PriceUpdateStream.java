@@ -0,0 +1,260 @@
+package com.xm.recommendationservice.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.domain.PriceUpdate;
+import com.xm.recommendationservice.service.PriceUpdateFeed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the {@link PriceUpdateFeed} to its Server-Sent Events subscribers: a {@value #SNAPSHOT_EVENT} event first,
+ * then an {@value #UPDATE_EVENT} event per change. Every update is serialized once and queued for all subscribers.
+ * <p>
+ * The queue of a subscriber holds at most {@link PriceProperties#getUpdatesQueueCapacity()} updates. When a slow
+ * subscriber overflows it, the queued updates are dropped and it gets a new snapshot instead, so a slow client costs
+ * a bounded amount of memory and never delays the ingestion or the other subscribers. Events are written by
+ * {@link PriceProperties#getUpdatesSenderThreads()} threads, each sending to one subscriber at a time.
+ * <p>
+ * Writing an event blocks while the client does not read. A subscriber whose event takes longer than
+ * {@link PriceProperties#getUpdatesSendTimeout()} to be written is dropped, and another sender thread is added
+ * until that write returns, so a client that never reads does not hold up the other subscribers either.
+ */
+@Component
+@Slf4j
+public class PriceUpdateStream implements DisposableBean {
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String UPDATE_EVENT = "update";
+
+    private final PriceUpdateFeed priceUpdateFeed;
+    private final ObjectMapper objectMapper;
+    private final int queueCapacity;
+    private final long timeout;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor senders;
+    private final ScheduledExecutorService watchdog;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter resyncs;
+    private final Counter stalls;
+    private volatile SerializedSnapshot serializedSnapshot;
+
+    public PriceUpdateStream(PriceUpdateFeed priceUpdateFeed, PriceProperties priceProperties,
+                             ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.priceUpdateFeed = priceUpdateFeed;
+        this.objectMapper = objectMapper;
+        this.queueCapacity = priceProperties.getUpdatesQueueCapacity();
+        this.timeout = priceProperties.getUpdatesTimeout().toMillis();
+        this.sendTimeoutNanos = priceProperties.getUpdatesSendTimeout().toNanos();
+        int senderThreads = priceProperties.getUpdatesSenderThreads();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "price-updates-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-updates-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkPeriod = Math.max(sendTimeoutNanos / 4, TimeUnit.MILLISECONDS.toNanos(1));
+        watchdog.scheduleWithFixedDelay(this::dropStalledSubscribers, checkPeriod, checkPeriod, TimeUnit.NANOSECONDS);
+        meterRegistry.gauge("prices.updates.subscribers", subscribers, Set::size);
+        this.resyncs = Counter.builder("prices.updates.resyncs")
+                .description("Snapshots sent to subscribers that fell behind")
+                .register(meterRegistry);
+        this.stalls = Counter.builder("prices.updates.stalls")
+                .description("Subscribers dropped as their client stopped reading")
+                .register(meterRegistry);
+        priceUpdateFeed.subscribe(this::publish);
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeout));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(exception -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.schedule();
+        return emitter;
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private void publish(PriceUpdate update) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(update);
+        } catch (JsonProcessingException exception) {
+            log.error("Could not serialize a price update", exception);
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(json);
+        }
+    }
+
+    /**
+     * Drops the subscribers whose event is being written for longer than the send timeout. The emitter cannot be
+     * completed while the write holds its lock, the sender thread completes it once the write returns.
+     */
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sending && now - subscriber.sendStart > sendTimeoutNanos && subscribers.remove(subscriber)) {
+                subscriber.stalled = true;
+                stalls.increment();
+                resizeSenders(1);
+                log.debug("Dropping a price update subscriber that does not read");
+            }
+        }
+    }
+
+    /**
+     * Adds a sender thread in place of one blocked by a stalled subscriber, or removes it once the write returned.
+     */
+    private synchronized void resizeSenders(int delta) {
+        if (delta > 0) {
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+        } else {
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+        }
+    }
+
+    private String getSnapshotJson() throws JsonProcessingException {
+        PriceUpdate snapshot = priceUpdateFeed.getSnapshot();
+        SerializedSnapshot serialized = serializedSnapshot;
+        if (serialized == null || serialized.snapshot != snapshot) {
+            serialized = new SerializedSnapshot(snapshot, objectMapper.writeValueAsString(snapshot));
+            serializedSnapshot = serialized;
+        }
+        return serialized.json;
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean resync = true;
+        private volatile boolean sending;
+        private volatile long sendStart;
+        /**
+         * Set by the watchdog, which already removed the subscriber and added a sender thread.
+         */
+        private volatile boolean stalled;
+        private final AtomicBoolean stallHandled = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Called by the single thread publishing updates. The queue is emptied before the resync is requested,
+         * so no update older than the snapshot is sent after it.
+         */
+        private void offer(String json) {
+            if (!queue.offer(json)) {
+                queue.clear();
+                resync = true;
+                resyncs.increment();
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    if (resync) {
+                        resync = false;
+                        send(SNAPSHOT_EVENT, getSnapshotJson());
+                    }
+                    String json = queue.poll();
+                    if (json == null) {
+                        break;
+                    }
+                    send(UPDATE_EVENT, json);
+                }
+            } catch (IOException | IllegalStateException exception) {
+                log.debug("Dropping a price update subscriber", exception);
+                subscribers.remove(this);
+                return;
+            } finally {
+                scheduled.set(false);
+                if (stalled && stallHandled.compareAndSet(false, true)) {
+                    resizeSenders(-1);
+                    emitter.complete();
+                }
+            }
+            if ((resync || !queue.isEmpty()) && subscribers.contains(this)) {
+                schedule();
+            }
+        }
+
+        private void send(String name, String json) throws IOException {
+            if (stalled) {
+                throw new IOException("The client stopped reading");
+            }
+            sendStart = System.nanoTime();
+            sending = true;
+            try {
+                emitter.send(SseEmitter.event().name(name).data(json, MediaType.APPLICATION_JSON));
+            } finally {
+                sending = false;
+            }
+        }
+    }
+
+    private static final class SerializedSnapshot {
+
+        private final PriceUpdate snapshot;
+        private final String json;
+
+        private SerializedSnapshot(PriceUpdate snapshot, String json) {
+            this.snapshot = snapshot;
+            this.json = json;
+        }
+    }
+}
@@ -1,24 +1,36 @@
 package com.xm.recommendationservice.controller;
 
+import com.xm.recommendationservice.domain.Candle;
 import com.xm.recommendationservice.domain.CryptoNormalizedRange;
 import com.xm.recommendationservice.domain.CryptoPrice;
+import com.xm.recommendationservice.domain.CryptoStats;
+import com.xm.recommendationservice.domain.PriceUpdate;
 import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.service.PricePage;
 import com.xm.recommendationservice.service.PriceService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Set;
 
 @RestController
 @RequestMapping("/prices")
@@ -27,68 +39,203 @@ import java.util.Set;
 public class PricesController {
 
     private final PriceService priceService;
+    private final CryptoPriceStreamWriter cryptoPriceStreamWriter;
+    private final PriceResponseCache priceResponseCache;
+    private final PriceUpdateStream priceUpdateStream;
 
     @GetMapping("/{symbol}/allPrices")
-    @Operation(summary = "All prices for currency", description = "Get all prices for this currency")
-    public List<CryptoPrice> getAllPrices(
+    @Operation(summary = "All prices for currency", description = "Get all prices for this currency. " +
+            "Pass the " + CryptoPriceStreamWriter.NEXT_CURSOR_HEADER + " response header as cursor to get the next page")
+    @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CryptoPrice.class))))
+    public ResponseEntity<StreamingResponseBody> getAllPrices(
             @Parameter(description = "Currency symbol", required = true, example = "BTC")
-            @PathVariable String symbol)
-            throws ServiceException {
-        return priceService.getAllPrices(symbol);
+            @PathVariable String symbol,
+            @Parameter(description = "Cursor of the page, omit for the first page")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Maximum number of prices in the page, omit for all prices", example = "100")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            WebRequest request) throws ServiceException {
+        PricePage page = priceResponseCache.getPage(request, () -> priceService.getAllPrices(symbol, cursor, limit),
+                "allPrices", symbol, cursor, limit);
+        return page == null ? null : cryptoPriceStreamWriter.write(page);
     }
 
     @GetMapping("/{name}/minPrice")
     @Operation(summary = "Min price", description = "Get minimum price of the currency")
-    public CryptoPrice getMinMonthPrice(
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = CryptoPrice.class)))
+    public ResponseEntity<byte[]> getMinMonthPrice(
             @Parameter(description = "Currency symbol", required = true, example = "BTC")
-            @PathVariable String name) throws ServiceException {
-        return priceService.getMinPrice(name);
+            @PathVariable String name,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request, () -> priceService.getMinPrice(name), "minPrice", name);
     }
 
     @GetMapping("/{name}/maxPrice")
     @Operation(summary = "Max price", description = "Get maximum price of the currency")
-    public CryptoPrice getMaxMonthPrice(
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = CryptoPrice.class)))
+    public ResponseEntity<byte[]> getMaxMonthPrice(
             @Parameter(description = "Currency symbol", required = true, example = "BTC")
-            @PathVariable String name) throws ServiceException {
-        return priceService.getMaxPrice(name);
+            @PathVariable String name,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request, () -> priceService.getMaxPrice(name), "maxPrice", name);
     }
 
     @GetMapping("/{name}/oldestMonthPrice")
     @Operation(summary = "Oldest price", description = "Get oldest price of the currency")
-    public CryptoPrice getOldestMonthPrice(
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = CryptoPrice.class)))
+    public ResponseEntity<byte[]> getOldestMonthPrice(
             @Parameter(description = "Currency symbol", required = true, example = "BTC")
-            @PathVariable String name) throws ServiceException {
-        return priceService.getOldestMonthPrice(name);
+            @PathVariable String name,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request, () -> priceService.getOldestMonthPrice(name), "oldestMonthPrice", name);
     }
 
     @GetMapping("/{name}/newestMonthPrice")
     @Operation(summary = "Newest price", description = "Get newest price of the currency")
-    public CryptoPrice getNewestMonthPrice(
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = CryptoPrice.class)))
+    public ResponseEntity<byte[]> getNewestMonthPrice(
             @Parameter(description = "Currency symbol", required = true, example = "BTC")
-            @PathVariable String name) throws ServiceException {
-        return priceService.getNewestMonthPrice(name);
+            @PathVariable String name,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request, () -> priceService.getNewestMonthPrice(name), "newestMonthPrice", name);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Statistics of many currencies", description = "Get minPrice, maxPrice, oldestMonthPrice " +
+            "and newestMonthPrice of several currencies in one request")
+    @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CryptoStats.class))))
+    public ResponseEntity<byte[]> getStats(
+            @Parameter(description = "Currency symbols", required = true, example = "BTC,ETH")
+            @RequestParam(value = "symbols") List<String> symbols,
+            @Parameter(description = "Statistics among minPrice, maxPrice, oldestMonthPrice and newestMonthPrice, " +
+                    "omit for all of them", example = "minPrice,maxPrice")
+            @RequestParam(value = "stats", required = false, defaultValue = "") List<String> stats,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request, () -> priceService.getStats(symbols, stats), "stats", symbols, stats);
     }
 
     @GetMapping("/normalizedRangeCryptos")
     @Operation(summary = "Normalized Range Cryptos", description = "Descending sorted list of all the cryptos, " +
             "comparing the normalized range")
-    public Set<CryptoNormalizedRange> getAllCryptosWithNormalizedRange() throws ServiceException {
-        return priceService.getAllCryptosWithNormalizedRange();
+    @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CryptoNormalizedRange.class))))
+    public ResponseEntity<byte[]> getAllCryptosWithNormalizedRange(WebRequest request)
+            throws ServiceException {
+        return priceResponseCache.get(request, priceService::getAllCryptosWithNormalizedRange,
+                "normalizedRangeCryptos");
+    }
+
+    @GetMapping("/normalizedRangeCryptosInPeriod")
+    @Operation(summary = "Normalized Range Cryptos in period", description = "Descending sorted list of all the cryptos, " +
+            "comparing the normalized range between two days, both inclusive")
+    @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CryptoNormalizedRange.class))))
+    public ResponseEntity<byte[]> getAllCryptosWithNormalizedRangeInPeriod(
+            @Parameter(description = "fromDate", required = true, example = "2022-01-01")
+            @RequestParam(value = "fromDate")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                    LocalDate fromDate,
+            @Parameter(description = "toDate", required = true, example = "2022-01-07")
+            @RequestParam(value = "toDate")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                    LocalDate toDate,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request,
+                () -> priceService.getCryptosWithNormalizedRangeInPeriod(fromDate, toDate),
+                "normalizedRangeCryptosInPeriod", fromDate, toDate);
+    }
+
+    @GetMapping("/normalizedRangeCryptosBetween")
+    @Operation(summary = "Normalized Range Cryptos between two times", description = "Descending sorted list of " +
+            "the cryptos, comparing the normalized range of the prices from fromTime, inclusive, to toTime, exclusive")
+    @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CryptoNormalizedRange.class))))
+    public ResponseEntity<byte[]> getAllCryptosWithNormalizedRangeBetween(
+            @Parameter(description = "fromTime", required = true, example = "2022-01-01T00:00:00")
+            @RequestParam(value = "fromTime")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    LocalDateTime fromTime,
+            @Parameter(description = "toTime", required = true, example = "2022-01-01T12:00:00")
+            @RequestParam(value = "toTime")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    LocalDateTime toTime,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request,
+                () -> priceService.getCryptosWithNormalizedRangeBetween(fromTime, toTime),
+                "normalizedRangeCryptosBetween", fromTime, toTime);
+    }
+
+    @GetMapping("/normalizedRangeCryptosRolling")
+    @Operation(summary = "Normalized Range Cryptos in rolling window", description = "Descending sorted list of " +
+            "the cryptos, comparing the normalized range over the window ending at the newest price")
+    @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CryptoNormalizedRange.class))))
+    public ResponseEntity<byte[]> getAllCryptosWithNormalizedRangeInRollingWindow(
+            @Parameter(description = "Length of the window, like 24h, 7d or 30d", required = true, example = "24h")
+            @RequestParam(value = "window") String window,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request,
+                () -> priceService.getCryptosWithNormalizedRangeInRollingWindow(window),
+                "normalizedRangeCryptosRolling", window);
     }
 
     @GetMapping("/bestCrypto")
     @Operation(summary = "Best crypto for date", description = "Crypto with the highest normalized range for a specific day")
-    public CryptoNormalizedRange getBestCrypto(
+    @ApiResponse(responseCode = "200",
+            content = @Content(schema = @Schema(implementation = CryptoNormalizedRange.class)))
+    public ResponseEntity<byte[]> getBestCrypto(
             @Parameter(description = "Date", required = true, example = "2022-02-05")
             @RequestParam(value = "date")
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
-            LocalDate date) throws ServiceException {
-        return priceService.getCryptoWithHighestNormalizedRangeByDate(date);
+            LocalDate date,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request, () -> priceService.getCryptoWithHighestNormalizedRangeByDate(date),
+                "bestCrypto", date);
+    }
+
+    @GetMapping("/{symbol}/candles")
+    @Operation(summary = "Candles for currency", description = "Get open, high, low and close price and number of " +
+            "prices per hour, day or week starting in the period. Omit the times for all candles")
+    @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = Candle.class))))
+    public ResponseEntity<byte[]> getCandles(
+            @Parameter(description = "Currency symbol", required = true, example = "BTC")
+            @PathVariable String symbol,
+            @Parameter(description = "Length of the candles: 1h, 1d or 1w", required = true, example = "1d")
+            @RequestParam(value = "resolution") String resolution,
+            @Parameter(description = "fromTime, inclusive", example = "2022-01-01T00:00:00")
+            @RequestParam(value = "fromTime", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    LocalDateTime fromTime,
+            @Parameter(description = "toTime, exclusive", example = "2022-02-01T00:00:00")
+            @RequestParam(value = "toTime", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    LocalDateTime toTime,
+            WebRequest request) throws ServiceException {
+        return priceResponseCache.get(request, () -> priceService.getCandles(symbol, resolution, fromTime, toTime),
+                "candles", symbol, resolution, fromTime, toTime);
+    }
+
+    @GetMapping(value = "/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Price updates", description = "Server-Sent Events stream of the changes of the prices. " +
+            "Starts with a '" + PriceUpdateStream.SNAPSHOT_EVENT + "' event holding the min and max price of every " +
+            "crypto and the normalized range ranking, followed by an '" + PriceUpdateStream.UPDATE_EVENT + "' event " +
+            "with the cryptos whose min or max changed, and the ranking when its order changed. A client falling " +
+            "behind gets a new snapshot instead of the missed updates")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+            schema = @Schema(implementation = PriceUpdate.class)))
+    public SseEmitter getUpdates() {
+        return priceUpdateStream.subscribe();
     }
 
     @GetMapping("/{symbol}/allPricesInPeriod")
-    @Operation(summary = "All prices for currency in period", description = "Get all prices for this currency for specific period")
-    public List<CryptoPrice> allPricesInPeriod(
+    @Operation(summary = "All prices for currency in period", description = "Get all prices for this currency for specific period. " +
+            "Pass the " + CryptoPriceStreamWriter.NEXT_CURSOR_HEADER + " response header as cursor to get the next page")
+    @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CryptoPrice.class))))
+    public ResponseEntity<StreamingResponseBody> allPricesInPeriod(
             @Parameter(description = "Currency symbol", required = true, example = "BTC")
             @PathVariable String symbol,
             @Parameter(description = "atDate", required = true, example = "2022-01-01T10:00:00")
@@ -98,7 +245,15 @@ public class PricesController {
             @Parameter(description = "toDate", required = true, example = "2022-01-28T13:00:00")
             @RequestParam(value = "toDate")
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
-                    LocalDateTime toDate) throws ServiceException {
-        return priceService.getAllPricesInPeriod(symbol, atDate, toDate);
+                    LocalDateTime toDate,
+            @Parameter(description = "Cursor of the page, omit for the first page")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Maximum number of prices in the page, omit for all prices", example = "100")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            WebRequest request) throws ServiceException {
+        PricePage page = priceResponseCache.getPage(request,
+                () -> priceService.getAllPricesInPeriod(symbol, atDate, toDate, cursor, limit),
+                "allPricesInPeriod", symbol, atDate, toDate, cursor, limit);
+        return page == null ? null : cryptoPriceStreamWriter.write(page);
     }
 }
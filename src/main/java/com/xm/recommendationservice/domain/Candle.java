@@ -0,0 +1,24 @@
+package com.xm.recommendationservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * First, highest, lowest and last price and number of prices of a crypto in the bucket starting at {@link #time}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Candle {
+
+    private LocalDateTime time;
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private int count;
+}
@@ -1,17 +1,36 @@
 package com.xm.recommendationservice.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 
+/**
+ * Normalized range {@code (max - min) / min} of a crypto, kept as a fixed-point number: {@link #unscaledNormalizedRange}
+ * with {@link #scale} decimals. The {@link BigDecimal} is only created when the response is serialized.
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class CryptoNormalizedRange {
 
     private String symbol;
-    private BigDecimal normalizedRange;
+    @JsonIgnore
+    private long unscaledNormalizedRange;
+    @JsonIgnore
+    private int scale;
 
+    public BigDecimal getNormalizedRange() {
+        return BigDecimal.valueOf(unscaledNormalizedRange, scale);
+    }
+
+    /**
+     * Reads back a range serialized by another node of the cluster.
+     */
+    public void setNormalizedRange(BigDecimal normalizedRange) {
+        this.unscaledNormalizedRange = normalizedRange.unscaledValue().longValueExact();
+        this.scale = normalizedRange.scale();
+    }
 }
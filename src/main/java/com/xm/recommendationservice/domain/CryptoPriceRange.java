@@ -0,0 +1,18 @@
+package com.xm.recommendationservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lowest and highest price of a crypto over all its prices.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CryptoPriceRange {
+
+    private String symbol;
+    private CryptoPrice minPrice;
+    private CryptoPrice maxPrice;
+}
@@ -0,0 +1,24 @@
+package com.xm.recommendationservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Requested {@link PriceStatistic}s of one crypto, the statistics that were not requested are left out.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CryptoStats {
+
+    private String symbol;
+    private CryptoPrice minPrice;
+    private CryptoPrice maxPrice;
+    private CryptoPrice oldestMonthPrice;
+    private CryptoPrice newestMonthPrice;
+
+    public CryptoStats(String symbol) {
+        this.symbol = symbol;
+    }
+}
@@ -0,0 +1,33 @@
+package com.xm.recommendationservice.domain;
+
+import java.util.Optional;
+
+/**
+ * Statistics of a crypto that can be requested in one batch, named like the endpoints answering them one by one.
+ */
+public enum PriceStatistic {
+
+    MIN_PRICE("minPrice"),
+    MAX_PRICE("maxPrice"),
+    OLDEST_MONTH_PRICE("oldestMonthPrice"),
+    NEWEST_MONTH_PRICE("newestMonthPrice");
+
+    private final String name;
+
+    PriceStatistic(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static Optional<PriceStatistic> fromName(String name) {
+        for (PriceStatistic statistic : values()) {
+            if (statistic.name.equals(name)) {
+                return Optional.of(statistic);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,35 @@
+package com.xm.recommendationservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Changes of the prices pushed to subscribers. Every field holds the new values rather than differences,
+ * so an update can be applied again on a newer state without harm.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceUpdate {
+
+    /**
+     * Cryptos whose lowest or highest price changed, or all cryptos in a snapshot.
+     */
+    private List<CryptoPriceRange> ranges;
+    private List<String> removedSymbols;
+    /**
+     * All cryptos in descending order of the normalized range, only present when the order changed.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CryptoNormalizedRange> ranking;
+    /**
+     * Base URL of the node of a cluster the update was sent by, which only holds the cryptos owned by that node.
+     * Absent when the node holds all cryptos.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String node;
+}
@@ -15,4 +15,8 @@ public class ServiceException extends Exception {
         super(errorCode.message, cause);
         this.errorCode = errorCode;
     }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
 }
@@ -1,17 +1,34 @@
 package com.xm.recommendationservice.handler;
 
+import com.xm.recommendationservice.constants.ErrorCode;
 import com.xm.recommendationservice.exception.ServiceException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @RestControllerAdvice
 public class GlobalControllerExceptionHandler {
 
     @ExceptionHandler(value = {ServiceException.class})
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    public String internalServerError(ServiceException exception) {
-        return exception.getMessage();
+    public ResponseEntity<String> serviceError(ServiceException exception) {
+        return ResponseEntity.status(getStatus(exception.getErrorCode())).body(exception.getMessage());
+    }
+
+    /**
+     * @return 400 for errors of the request, 503 when another node of the cluster does not answer, 500 otherwise
+     */
+    static HttpStatus getStatus(ErrorCode errorCode) {
+        switch (errorCode) {
+            case INVALID_PAGE_REQUEST:
+            case INVALID_PERIOD:
+            case INVALID_STATISTIC:
+            case INVALID_RESOLUTION:
+                return HttpStatus.BAD_REQUEST;
+            case SHARD_UNAVAILABLE:
+                return HttpStatus.SERVICE_UNAVAILABLE;
+            default:
+                return HttpStatus.INTERNAL_SERVER_ERROR;
+        }
     }
 }
@@ -0,0 +1,257 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses a {@code timestamp,symbol,price} file of one cryptocurrency straight from its bytes,
+ * usually a memory-mapped region of the file. Epoch millis and decimal prices are decoded into primitive
+ * columns without creating a String, BigDecimal or date per row; only the header line is decoded to text.
+ * <p>
+ * The parser remembers the header and the line number, so the same instance can continue with lines
+ * appended to the file later. Malformed rows are logged with their line number and skipped.
+ * Column names are matched ignoring case and a leading UTF-8 byte order mark.
+ * Fields may be quoted, but quoted fields must not contain separators.
+ */
+@Slf4j
+class CsvPriceParser {
+
+    private static final String TIMESTAMP_COLUMN = "timestamp";
+    private static final String PRICE_COLUMN = "price";
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+    private static final byte SEPARATOR = ',';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte QUOTE = '"';
+    private static final long MAX_BEFORE_MULTIPLY = Long.MAX_VALUE / 10;
+
+    private final String symbol;
+    private int timestampColumn = -1;
+    private int priceColumn = -1;
+    private long lineNumber;
+    private long parsedRows;
+    private long malformedRows;
+
+    private long parsedTimestamp;
+    private long parsedPrice;
+    private int parsedPriceScale;
+    private long decimalValue;
+    private int decimalScale;
+
+    CsvPriceParser(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Continues a file whose header and first {@code lineNumber} lines were parsed before.
+     */
+    CsvPriceParser(String symbol, int timestampColumn, int priceColumn, long lineNumber) {
+        this.symbol = symbol;
+        this.timestampColumn = timestampColumn;
+        this.priceColumn = priceColumn;
+        this.lineNumber = lineNumber;
+    }
+
+    int getTimestampColumn() {
+        return timestampColumn;
+    }
+
+    int getPriceColumn() {
+        return priceColumn;
+    }
+
+    long getLineNumber() {
+        return lineNumber;
+    }
+
+    long getParsedRows() {
+        return parsedRows;
+    }
+
+    long getMalformedRows() {
+        return malformedRows;
+    }
+
+    /**
+     * Parses the lines between the position and the limit of the buffer without moving its position.
+     *
+     * @param endOfInput whether the buffer ends the input, so that a last line without a line break is complete
+     * @return number of bytes consumed, always ending after a line break unless {@code endOfInput} is set
+     */
+    int parse(ByteBuffer buffer, SymbolPricesBuilder builder, boolean endOfInput) throws IOException {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        int lineStart = start;
+        while (lineStart < limit) {
+            int lineEnd = indexOf(buffer, LINE_FEED, lineStart, limit);
+            int nextLine = lineEnd + 1;
+            if (lineEnd < 0) {
+                if (!endOfInput) {
+                    break;
+                }
+                lineEnd = limit;
+                nextLine = limit;
+            }
+            lineNumber++;
+            parseLine(buffer, lineStart, lineEnd, builder);
+            lineStart = nextLine;
+        }
+        return lineStart - start;
+    }
+
+    private void parseLine(ByteBuffer buffer, int from, int to, SymbolPricesBuilder builder) throws IOException {
+        if (to > from && buffer.get(to - 1) == CARRIAGE_RETURN) {
+            to--;
+        }
+        if (isBlank(buffer, from, to)) {
+            return;
+        }
+        if (timestampColumn < 0) {
+            parseHeader(buffer, from, to);
+            return;
+        }
+        boolean timestampParsed = false;
+        boolean priceParsed = false;
+        int column = 0;
+        int fieldStart = from;
+        while (fieldStart <= to) {
+            int fieldEnd = indexOf(buffer, SEPARATOR, fieldStart, to);
+            if (fieldEnd < 0) {
+                fieldEnd = to;
+            }
+            if (column == timestampColumn) {
+                timestampParsed = parseTimestamp(buffer, fieldStart, fieldEnd);
+            } else if (column == priceColumn) {
+                priceParsed = parsePrice(buffer, fieldStart, fieldEnd);
+            }
+            column++;
+            fieldStart = fieldEnd + 1;
+        }
+        if (timestampParsed && priceParsed) {
+            try {
+                builder.add(parsedTimestamp, parsedPrice, parsedPriceScale);
+                parsedRows++;
+                return;
+            } catch (ArithmeticException exception) {
+                log.debug("Price out of range", exception);
+            }
+        }
+        malformedRows++;
+        log.warn("Skipping malformed {} price at line {}", symbol, lineNumber);
+    }
+
+    private void parseHeader(ByteBuffer buffer, int from, int to) throws IOException {
+        byte[] header = new byte[to - from];
+        ByteBuffer headerBuffer = buffer.duplicate();
+        headerBuffer.position(from);
+        headerBuffer.get(header);
+        String headerLine = new String(header, StandardCharsets.UTF_8);
+        if (headerLine.startsWith(BYTE_ORDER_MARK)) {
+            headerLine = headerLine.substring(BYTE_ORDER_MARK.length());
+        }
+        String[] columns = headerLine.split(",");
+        for (int column = 0; column < columns.length; column++) {
+            String name = columns[column].trim().replace("\"", "");
+            if (TIMESTAMP_COLUMN.equalsIgnoreCase(name)) {
+                timestampColumn = column;
+            } else if (PRICE_COLUMN.equalsIgnoreCase(name)) {
+                priceColumn = column;
+            }
+        }
+        if (timestampColumn < 0 || priceColumn < 0) {
+            throw new IOException("Missing timestamp or price column in " + symbol + " prices");
+        }
+    }
+
+    private boolean parseTimestamp(ByteBuffer buffer, int from, int to) {
+        if (!parseDecimal(buffer, from, to) || decimalScale != 0) {
+            return false;
+        }
+        parsedTimestamp = decimalValue;
+        return true;
+    }
+
+    private boolean parsePrice(ByteBuffer buffer, int from, int to) {
+        if (!parseDecimal(buffer, from, to)) {
+            return false;
+        }
+        parsedPrice = decimalValue;
+        parsedPriceScale = decimalScale;
+        return true;
+    }
+
+    /**
+     * Decodes {@code [-+]digits[.digits]} into {@link #decimalValue} and {@link #decimalScale}.
+     */
+    private boolean parseDecimal(ByteBuffer buffer, int from, int to) {
+        while (from < to && isSpaceOrQuote(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isSpaceOrQuote(buffer.get(to - 1))) {
+            to--;
+        }
+        if (from == to) {
+            return false;
+        }
+        boolean negative = false;
+        byte first = buffer.get(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            from++;
+        }
+        long value = 0;
+        int scale = -1;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            byte character = buffer.get(i);
+            if (character == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = character - '0';
+            if (digit < 0 || digit > 9 || value > MAX_BEFORE_MULTIPLY) {
+                return false;
+            }
+            value = value * 10 + digit;
+            if (value < 0) {
+                return false;
+            }
+            if (scale >= 0) {
+                scale++;
+            }
+            digits++;
+        }
+        if (digits == 0) {
+            return false;
+        }
+        decimalValue = negative ? -value : value;
+        decimalScale = Math.max(scale, 0);
+        return true;
+    }
+
+    private static boolean isSpaceOrQuote(byte character) {
+        return character == ' ' || character == '\t' || character == QUOTE;
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) != ' ' && buffer.get(i) != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
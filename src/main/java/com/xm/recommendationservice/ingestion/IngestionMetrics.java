@@ -0,0 +1,109 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.xm.recommendationservice.repository.ColumnStore;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.PriceRepository;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Meters of the price ingestion: rows read and skipped per symbol, files that could not be read,
+ * the time of every refresh, and the rows and column bytes kept in memory per symbol.
+ * A symbol's gauges are registered when its prices are first saved and removed with its file.
+ * With a bounded {@link ColumnStore}, also the column bytes kept in memory in total and the columns paged out
+ * and copied back.
+ */
+@Component
+public final class IngestionMetrics {
+
+    private static final String SYMBOL_TAG = "symbol";
+
+    private final MeterRegistry meterRegistry;
+    private final PriceRepository priceRepository;
+    private final Timer refreshTimer;
+    private final Map<String, List<Gauge>> storeGauges = new HashMap<>();
+
+    public IngestionMetrics(MeterRegistry meterRegistry, InMemoryPriceRepository priceRepository) {
+        this.meterRegistry = meterRegistry;
+        this.priceRepository = priceRepository;
+        this.refreshTimer = Timer.builder("prices.ingestion")
+                .description("Time to read new prices and publish them")
+                .register(meterRegistry);
+        registerColumnStore(priceRepository.getColumnStore());
+    }
+
+    Timer.Sample startRefresh() {
+        return Timer.start(meterRegistry);
+    }
+
+    void stopRefresh(Timer.Sample sample) {
+        sample.stop(refreshTimer);
+    }
+
+    void recordRows(String symbol, long rows, long malformedRows) {
+        if (rows > 0) {
+            meterRegistry.counter("prices.ingestion.rows", SYMBOL_TAG, symbol).increment(rows);
+        }
+        if (malformedRows > 0) {
+            meterRegistry.counter("prices.ingestion.malformed.rows", SYMBOL_TAG, symbol).increment(malformedRows);
+        }
+    }
+
+    void recordFailure(String symbol) {
+        meterRegistry.counter("prices.ingestion.failures", SYMBOL_TAG, symbol).increment();
+    }
+
+    private void registerColumnStore(ColumnStore columnStore) {
+        if (!columnStore.isBounded()) {
+            return;
+        }
+        Gauge.builder("prices.store.resident.bytes", columnStore, ColumnStore::getResidentBytes)
+                .description("Bytes of the price columns of all symbols kept in memory")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("prices.store.page.outs", columnStore, ColumnStore::getPageOuts)
+                .description("Price columns paged out to memory-mapped files")
+                .register(meterRegistry);
+        FunctionCounter.builder("prices.store.page.ins", columnStore, ColumnStore::getPageIns)
+                .description("Paged out price columns copied back to memory")
+                .register(meterRegistry);
+    }
+
+    synchronized void updateStoreGauges(Collection<SymbolPrices> saved, Collection<String> deleted) {
+        for (SymbolPrices prices : saved) {
+            storeGauges.computeIfAbsent(prices.getSymbol(), this::registerStoreGauges);
+        }
+        for (String symbol : deleted) {
+            List<Gauge> gauges = storeGauges.remove(symbol);
+            if (gauges != null) {
+                gauges.forEach(meterRegistry::remove);
+            }
+        }
+    }
+
+    private List<Gauge> registerStoreGauges(String symbol) {
+        Tags tags = Tags.of(SYMBOL_TAG, symbol);
+        return List.of(
+                Gauge.builder("prices.store.rows", priceRepository, repository ->
+                                repository.findBySymbol(symbol).map(SymbolPrices::size).orElse(0))
+                        .description("Prices kept in memory")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Gauge.builder("prices.store.bytes", priceRepository, repository ->
+                                repository.findBySymbol(symbol).map(SymbolPrices::getColumnBytes).orElse(0L))
+                        .description("Bytes of the price columns kept in memory")
+                        .baseUnit("bytes")
+                        .tags(tags)
+                        .register(meterRegistry));
+    }
+}
@@ -0,0 +1,113 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Watches the configured price directory and hands every changed, new or deleted price file
+ * to the {@link PriceIngestionService} on a dedicated thread, so request threads never wait for ingestion.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PriceDirectoryWatcher implements SmartLifecycle {
+
+    private final PriceIngestionService priceIngestionService;
+    private final PriceProperties priceProperties;
+    private WatchService watchService;
+    private Thread thread;
+
+    @Override
+    public synchronized void start() {
+        if (!StringUtils.hasText(priceProperties.getDirectory()) || !priceProperties.isWatch()) {
+            return;
+        }
+        Path directory = priceIngestionService.getDirectory();
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException exception) {
+            log.error("Could not watch the price directory {}", directory, exception);
+            return;
+        }
+        // Changes made between the initial load and the registration are picked up here, files not written
+        // since are skipped on their size and modification time
+        priceIngestionService.rescan();
+        thread = new Thread(() -> watch(directory), "price-directory-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} for price changes", directory);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException exception) {
+            log.warn("Could not close the price directory watcher", exception);
+        }
+        thread.interrupt();
+        thread = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    private void watch(Path directory) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                    } else {
+                        Path file = directory.resolve((Path) event.context());
+                        if (PriceIngestionService.isPriceFile(file)) {
+                            changed.add(file);
+                        }
+                    }
+                }
+                try {
+                    if (overflow) {
+                        priceIngestionService.rescan();
+                    } else if (!changed.isEmpty()) {
+                        priceIngestionService.refresh(changed);
+                    }
+                } catch (RuntimeException exception) {
+                    // The next change of the files is read all the same
+                    log.error("Could not read the changed price files {}", overflow ? directory : changed, exception);
+                }
+                if (!key.reset()) {
+                    log.error("The price directory {} is no longer accessible", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException exception) {
+            log.debug("Price directory watcher closed");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.xm.recommendationservice.ingestion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Read state of one price file: the parser holding its header and line number, the number of bytes
+ * already ingested, the first and last bytes before that offset and a running CRC of all of them,
+ * used to tell an append from a rewrite, and the size and modification time of the file at the last read,
+ * used to skip a file that was not written since.
+ */
+final class PriceFile {
+
+    static final int FINGERPRINT_LENGTH = 64;
+    private static final long MAX_CHECKSUM_REGION = 256L * 1024 * 1024;
+
+    final CsvPriceParser parser;
+    final CRC32 checksum;
+    long offset;
+    byte[] head = new byte[0];
+    byte[] tail = new byte[0];
+    long snapshotOffset = -1;
+    private long seenSize = -1;
+    private FileTime seenModified;
+
+    PriceFile(CsvPriceParser parser) {
+        this(parser, new CRC32());
+    }
+
+    /**
+     * @param checksum CRC of the bytes the parser already consumed
+     */
+    PriceFile(CsvPriceParser parser, CRC32 checksum) {
+        this.parser = parser;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Adds bytes consumed by the parser, between the position and the limit of the buffer, to the running CRC.
+     */
+    void consumed(ByteBuffer bytes) {
+        checksum.update(bytes);
+    }
+
+    /**
+     * @return whether the file has the size and modification time it had when it was last read
+     */
+    boolean isSeen(BasicFileAttributes attributes) {
+        return attributes.size() == seenSize && attributes.lastModifiedTime().equals(seenModified);
+    }
+
+    /**
+     * Records the size and modification time of the file, read before its content.
+     */
+    void see(BasicFileAttributes attributes) {
+        seenSize = attributes.size();
+        seenModified = attributes.lastModifiedTime();
+    }
+
+    /**
+     * Tells whether the bytes already read are still in the file written since the last read. The first and last bytes
+     * are compared every time, the whole read content only when the file did not grow, since an append does not touch
+     * it but an in-place edit keeping the length does.
+     */
+    boolean isUnchanged(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < offset || !hasBytes(channel, 0, head) || !hasBytes(channel, offset - tail.length, tail)) {
+            return false;
+        }
+        return size > offset || checksum(channel, offset).getValue() == checksum.getValue();
+    }
+
+    void updateFingerprint(FileChannel channel) throws IOException {
+        head = read(channel, 0, (int) Math.min(offset, FINGERPRINT_LENGTH));
+        int tailLength = (int) Math.min(offset, FINGERPRINT_LENGTH);
+        tail = read(channel, offset - tailLength, tailLength);
+    }
+
+    /**
+     * @return CRC of the first {@code length} bytes of the file
+     */
+    static CRC32 checksum(FileChannel channel, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        long position = 0;
+        while (position < length) {
+            long regionLength = Math.min(length - position, MAX_CHECKSUM_REGION);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, regionLength));
+            position += regionLength;
+        }
+        return crc;
+    }
+
+    private static boolean hasBytes(FileChannel channel, long position, byte[] expected) throws IOException {
+        return Arrays.equals(read(channel, position, expected.length), expected);
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, buffer, position);
+        return Arrays.copyOf(buffer.array(), buffer.limit());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,275 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.xm.recommendationservice.cluster.ShardRouter;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads the {@code *_values.csv} files into the {@link InMemoryPriceRepository}.
+ * Files of the configured price directory are memory-mapped and tracked by byte offset, so a change
+ * only parses the complete lines appended since the last read. A file that shrank is read again from the start,
+ * and so is a file whose first or last read bytes changed or, when it did not grow, any of its read bytes.
+ * A file with the size and modification time of its last read is skipped without reading it, so repeated events
+ * and rescans of unchanged files cost a file status each.
+ * <p>
+ * When a snapshot directory is configured, a file read in full is also saved as a {@link PriceSnapshot}
+ * and the next startup decodes the snapshot instead of parsing the CSV, then parses only the rows
+ * appended to the file since.
+ * <p>
+ * In a cluster only the files of the symbols owned by this node are read, see {@link ShardRouter}.
+ */
+@Service
+@Slf4j
+public class PriceIngestionService {
+
+    public static final String FILE_SUFFIX = "_values.csv";
+    public static final String FILE_NAME_REGEXP = ".+_values\\.csv";
+    private static final String CLASSPATH_PATTERN = "classpath:prices/*" + FILE_SUFFIX;
+    private static final long MAX_MAPPED_REGION = 256L * 1024 * 1024;
+
+    private final InMemoryPriceRepository priceRepository;
+    private final PriceProperties priceProperties;
+    private final IngestionMetrics metrics;
+    private final ShardRouter shardRouter;
+    private final Map<Path, PriceFile> files = new HashMap<>();
+
+    public PriceIngestionService(InMemoryPriceRepository priceRepository, PriceProperties priceProperties,
+                                 IngestionMetrics metrics, ShardRouter shardRouter) {
+        this.priceRepository = priceRepository;
+        this.priceProperties = priceProperties;
+        this.metrics = metrics;
+        this.shardRouter = shardRouter;
+    }
+
+    @PostConstruct
+    public void load() {
+        long start = System.nanoTime();
+        if (StringUtils.hasText(priceProperties.getDirectory())) {
+            rescan();
+        } else {
+            loadClasspath();
+        }
+        log.info("Loaded prices for {} cryptocurrencies in {} ms", priceRepository.findAll().size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Saves a snapshot of every price file that got new rows since its last snapshot.
+     */
+    @PreDestroy
+    public synchronized void saveSnapshots() {
+        if (!hasSnapshotDirectory()) {
+            return;
+        }
+        files.forEach((path, file) -> {
+            if (file.offset != file.snapshotOffset) {
+                priceRepository.findBySymbol(toSymbol(path)).ifPresent(prices -> saveSnapshot(prices, file));
+            }
+        });
+    }
+
+    public Path getDirectory() {
+        return Paths.get(priceProperties.getDirectory());
+    }
+
+    public static boolean isPriceFile(Path file) {
+        return file.getFileName().toString().matches(FILE_NAME_REGEXP);
+    }
+
+    /**
+     * Reads the new content of every price file of the directory and drops symbols whose file is gone.
+     */
+    public synchronized void rescan() {
+        Set<Path> changed = new HashSet<>(files.keySet());
+        try (Stream<Path> paths = Files.list(getDirectory())) {
+            changed.addAll(paths.filter(path -> Files.isRegularFile(path) && isPriceFile(path)
+                            && shardRouter.owns(toSymbol(path)))
+                    .collect(Collectors.toList()));
+        } catch (IOException exception) {
+            log.error("Could not list the price directory {}", priceProperties.getDirectory(), exception);
+        }
+        refresh(changed);
+    }
+
+    /**
+     * Ingests the changes of the given price files and publishes them to the repository at once.
+     */
+    public synchronized void refresh(Collection<Path> changedFiles) {
+        Timer.Sample sample = metrics.startRefresh();
+        List<SymbolPrices> saved = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (Path path : changedFiles) {
+            String symbol = toSymbol(path);
+            if (!shardRouter.owns(symbol)) {
+                continue;
+            }
+            if (!Files.isRegularFile(path)) {
+                if (files.remove(path) != null) {
+                    deleted.add(symbol);
+                }
+                continue;
+            }
+            try {
+                SymbolPrices prices = ingest(path, symbol);
+                if (prices != null) {
+                    saved.add(prices);
+                }
+            } catch (IOException exception) {
+                metrics.recordFailure(symbol);
+                log.error("Could not load prices from {}", path, exception);
+            }
+        }
+        priceRepository.update(saved, deleted);
+        metrics.updateStoreGauges(saved, deleted);
+        metrics.stopRefresh(sample);
+        if (!saved.isEmpty() || !deleted.isEmpty()) {
+            log.debug("Updated prices of {}, removed {}", saved.stream().map(SymbolPrices::getSymbol)
+                    .collect(Collectors.toList()), deleted);
+        }
+    }
+
+    private SymbolPrices ingest(Path path, String symbol) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        PriceFile file = files.get(path);
+        if (file != null && file.isSeen(attributes)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (file != null && !file.isUnchanged(channel)) {
+                log.info("{} was rewritten, reading it again", path);
+                file = null;
+            }
+            if (file != null && size == file.offset) {
+                file.see(attributes);
+                return null;
+            }
+            boolean reload = file == null;
+            PriceSnapshot.Restored restored = reload && hasSnapshotDirectory()
+                    ? PriceSnapshot.read(getSnapshotFile(symbol), symbol, channel) : null;
+            SymbolPricesBuilder builder;
+            if (restored != null) {
+                file = restored.file;
+                builder = restored.builder;
+            } else if (reload) {
+                file = new PriceFile(new CsvPriceParser(symbol));
+                builder = new SymbolPricesBuilder(symbol);
+            } else {
+                builder = appendingTo(symbol);
+            }
+            boolean fullRead = reload && restored == null;
+            long parsedRows = file.parser.getParsedRows();
+            long malformedRows = file.parser.getMalformedRows();
+            long position = file.offset;
+            while (position < size) {
+                long length = Math.min(size - position, MAX_MAPPED_REGION);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int consumed = file.parser.parse(region, builder, fullRead && position + length == size);
+                if (consumed == 0) {
+                    break;
+                }
+                region.limit(consumed);
+                file.consumed(region);
+                position += consumed;
+            }
+            metrics.recordRows(symbol, file.parser.getParsedRows() - parsedRows,
+                    file.parser.getMalformedRows() - malformedRows);
+            file.see(attributes);
+            if (position == file.offset && restored == null) {
+                return null;
+            }
+            if (position != file.offset) {
+                file.offset = position;
+                file.updateFingerprint(channel);
+            }
+            files.put(path, file);
+            SymbolPrices prices = builder.build();
+            if (fullRead && hasSnapshotDirectory()) {
+                saveSnapshot(prices, file);
+            }
+            priceRepository.admit(prices);
+            return prices;
+        }
+    }
+
+    private SymbolPricesBuilder appendingTo(String symbol) {
+        return priceRepository.findBySymbol(symbol)
+                .map(SymbolPricesBuilder::appendingTo)
+                .orElseGet(() -> new SymbolPricesBuilder(symbol));
+    }
+
+    private void loadClasspath() {
+        Timer.Sample sample = metrics.startRefresh();
+        List<SymbolPrices> loaded = new ArrayList<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(CLASSPATH_PATTERN)) {
+                String symbol = toSymbol(Paths.get(Objects.requireNonNull(resource.getFilename())));
+                if (!shardRouter.owns(symbol)) {
+                    continue;
+                }
+                SymbolPricesBuilder builder = new SymbolPricesBuilder(symbol);
+                try (InputStream inputStream = resource.getInputStream()) {
+                    CsvPriceParser parser = new CsvPriceParser(symbol);
+                    parser.parse(ByteBuffer.wrap(inputStream.readAllBytes()), builder, true);
+                    metrics.recordRows(symbol, parser.getParsedRows(), parser.getMalformedRows());
+                    SymbolPrices prices = builder.build();
+                    priceRepository.admit(prices);
+                    loaded.add(prices);
+                } catch (IOException exception) {
+                    metrics.recordFailure(symbol);
+                    log.error("Could not load prices from {}", resource, exception);
+                }
+            }
+        } catch (IOException exception) {
+            log.error("Could not find the packaged prices", exception);
+        }
+        priceRepository.update(loaded, Collections.emptyList());
+        metrics.updateStoreGauges(loaded, Collections.emptyList());
+        metrics.stopRefresh(sample);
+    }
+
+    private boolean hasSnapshotDirectory() {
+        return StringUtils.hasText(priceProperties.getSnapshotDirectory());
+    }
+
+    private Path getSnapshotFile(String symbol) {
+        return Paths.get(priceProperties.getSnapshotDirectory()).resolve(symbol + PriceSnapshot.FILE_SUFFIX);
+    }
+
+    private void saveSnapshot(SymbolPrices prices, PriceFile file) {
+        try {
+            PriceSnapshot.write(getSnapshotFile(prices.getSymbol()), prices, file);
+        } catch (IOException exception) {
+            log.warn("Could not save the {} price snapshot", prices.getSymbol(), exception);
+        }
+    }
+
+    private static String toSymbol(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.substring(0, fileName.length() - FILE_SUFFIX.length());
+    }
+}
@@ -0,0 +1,257 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.xm.recommendationservice.repository.SymbolPrices;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary copy of the prices read from one {@code *_values.csv} file, loaded at startup
+ * instead of parsing the CSV again.
+ * <p>
+ * Timestamps and unscaled prices are stored as zigzag varint deltas to the previous row, which takes
+ * 3 to 5 bytes per row for typical tick data, followed by the scale each row was read with when the rows of the file
+ * do not all have the common scale. The header records how much of the CSV file the snapshot
+ * covers and the CRC of those bytes. A snapshot is used as long as the start of the CSV file up to that
+ * offset still has that CRC, rows appended to the CSV later are parsed on top of it.
+ * <pre>
+ * int magic, int version, long csvOffset, long lineNumber, int timestampColumn, int priceColumn,
+ * long crc32 of the covered CSV bytes, int scale, int rows,
+ * int timestampBytes, int priceBytes, int priceScaleBytes, long crc32 of all sections,
+ * byte[timestampBytes] timestamp deltas, byte[priceBytes] price deltas, byte[priceScaleBytes] price scales
+ * </pre>
+ */
+@Slf4j
+final class PriceSnapshot {
+
+    static final String FILE_SUFFIX = "_values.bin";
+    private static final int MAGIC = 0x50524353;
+    private static final int VERSION = 3;
+
+    private PriceSnapshot() {
+    }
+
+    static void write(Path snapshotFile, SymbolPrices prices, PriceFile file) throws IOException {
+        RowEncoder encoder = new RowEncoder(prices);
+        prices.forEachRow(encoder);
+        VarintOutput timestamps = encoder.timestamps;
+        VarintOutput unscaledPrices = encoder.unscaledPrices;
+        byte[] priceScales = encoder.priceScales;
+        CRC32 crc = new CRC32();
+        crc.update(timestamps.buffer(), 0, timestamps.size());
+        crc.update(unscaledPrices.buffer(), 0, unscaledPrices.size());
+        crc.update(priceScales);
+
+        ByteBuffer header = ByteBuffer.allocate(72);
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(file.offset)
+                .putLong(file.parser.getLineNumber())
+                .putInt(file.parser.getTimestampColumn())
+                .putInt(file.parser.getPriceColumn())
+                .putLong(file.checksum.getValue())
+                .putInt(prices.getScale())
+                .putInt(prices.size())
+                .putInt(timestamps.size())
+                .putInt(unscaledPrices.size())
+                .putInt(priceScales.length)
+                .putLong(crc.getValue())
+                .flip();
+
+        Files.createDirectories(snapshotFile.getParent());
+        Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            writeFully(channel, ByteBuffer.wrap(timestamps.buffer(), 0, timestamps.size()));
+            writeFully(channel, ByteBuffer.wrap(unscaledPrices.buffer(), 0, unscaledPrices.size()));
+            writeFully(channel, ByteBuffer.wrap(priceScales));
+        }
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        file.snapshotOffset = file.offset;
+    }
+
+    /**
+     * Memory-maps the snapshot and decodes it into a builder.
+     *
+     * @param csv the price file the snapshot was made from
+     * @return the decoded prices and the read state of the CSV file, or {@code null} when there is no usable
+     * snapshot because it is missing, corrupt or the CSV file was rewritten since
+     */
+    static Restored read(Path snapshotFile, String symbol, FileChannel csv) {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Ignoring {}, it is not a price snapshot of this version", snapshotFile);
+                return null;
+            }
+            long csvOffset = buffer.getLong();
+            long lineNumber = buffer.getLong();
+            int timestampColumnIndex = buffer.getInt();
+            int priceColumnIndex = buffer.getInt();
+            long csvChecksum = buffer.getLong();
+            CRC32 csvCrc = csv.size() < csvOffset ? null : PriceFile.checksum(csv, csvOffset);
+            if (csvCrc == null || csvCrc.getValue() != csvChecksum) {
+                log.info("Ignoring {}, the price file was rewritten", snapshotFile);
+                return null;
+            }
+            int scale = buffer.getInt();
+            int rows = buffer.getInt();
+            int timestampBytes = buffer.getInt();
+            int priceBytes = buffer.getInt();
+            int priceScaleBytes = buffer.getInt();
+            long checksum = buffer.getLong();
+
+            ByteBuffer timestamps = slice(buffer, buffer.position(), timestampBytes);
+            ByteBuffer prices = slice(buffer, buffer.position() + timestampBytes, priceBytes);
+            ByteBuffer priceScales = slice(buffer, buffer.position() + timestampBytes + priceBytes, priceScaleBytes);
+            CRC32 crc = new CRC32();
+            crc.update(timestamps.duplicate());
+            crc.update(prices.duplicate());
+            crc.update(priceScales.duplicate());
+            if (crc.getValue() != checksum) {
+                log.warn("Ignoring {}, the checksum does not match", snapshotFile);
+                return null;
+            }
+
+            long[] timestampColumn = decodeDeltas(timestamps, rows);
+            long[] priceColumn = decodeDeltas(prices, rows);
+            SymbolPricesBuilder builder = new SymbolPricesBuilder(symbol, rows);
+            for (int i = 0; i < rows; i++) {
+                if (priceScaleBytes == 0) {
+                    builder.add(timestampColumn[i], priceColumn[i], scale);
+                } else {
+                    int priceScale = priceScales.get(i);
+                    builder.add(timestampColumn[i], priceColumn[i] / pow10(scale - priceScale), priceScale);
+                }
+            }
+            PriceFile file = new PriceFile(new CsvPriceParser(symbol, timestampColumnIndex, priceColumnIndex, lineNumber),
+                    csvCrc);
+            file.offset = csvOffset;
+            file.updateFingerprint(csv);
+            file.snapshotOffset = csvOffset;
+            return new Restored(builder, file);
+        } catch (IOException | RuntimeException exception) {
+            log.warn("Could not read the price snapshot {}", snapshotFile, exception);
+            return null;
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position).limit(position + length);
+        return slice.slice();
+    }
+
+    private static long[] decodeDeltas(ByteBuffer buffer, int rows) {
+        long[] values = new long[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += readZigzag(buffer);
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static long readZigzag(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while (current < 0);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static final class Restored {
+
+        final SymbolPricesBuilder builder;
+        final PriceFile file;
+
+        private Restored(SymbolPricesBuilder builder, PriceFile file) {
+            this.builder = builder;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Encodes the rows of {@link SymbolPrices#forEachRow}, which reads paged out columns without copying them back
+     * to the heap.
+     */
+    private static final class RowEncoder implements SymbolPrices.RowConsumer {
+
+        private final VarintOutput timestamps;
+        private final VarintOutput unscaledPrices;
+        private final byte[] priceScales;
+        private int row;
+        private long previousTimestamp;
+        private long previousPrice;
+
+        private RowEncoder(SymbolPrices prices) {
+            timestamps = new VarintOutput(prices.size() * 3);
+            unscaledPrices = new VarintOutput(prices.size() * 3);
+            priceScales = new byte[prices.hasPriceScales() ? prices.size() : 0];
+        }
+
+        @Override
+        public void accept(long timestamp, long price, int priceScale) {
+            timestamps.writeZigzag(timestamp - previousTimestamp);
+            unscaledPrices.writeZigzag(price - previousPrice);
+            previousTimestamp = timestamp;
+            previousPrice = price;
+            if (priceScales.length > 0) {
+                priceScales[row] = (byte) priceScale;
+            }
+            row++;
+        }
+    }
+
+    private static final class VarintOutput extends ByteArrayOutputStream {
+
+        private VarintOutput(int capacity) {
+            super(Math.max(capacity, 32));
+        }
+
+        private void writeZigzag(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            write((int) zigzag);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.xm.recommendationservice.repository;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Candles of one cryptocurrency at one {@link CandleResolution}: min, max, first and last price and number of rows
+ * of every bucket that has prices. Buckets are identified by the epoch millis of their start in the zone the index
+ * was built for, prices are unscaled with the scale of the owning {@link SymbolPrices}.
+ * <p>
+ * Hourly candles are built from the rows, coarser ones are rolled up from the candles of the next finer resolution,
+ * so a year of daily candles is built from 8760 hourly candles and read as 365 buckets.
+ * <p>
+ * Only the last bucket changes when rows are appended, so its min, max and last price and count are kept in fields
+ * of the index while the columns hold the closed buckets. Like the columns of {@link SymbolPrices}, the columns keep
+ * spare capacity that a newer index may use: it closes the last bucket and adds its buckets behind those of this
+ * index, which are never changed.
+ */
+public final class CandleIndex {
+
+    static final CandleIndex EMPTY = new CandleIndex(new long[0], new long[0], new long[0], new long[0],
+            new long[0], new int[0], 0, false);
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] starts;
+    private long[] minPrices;
+    private long[] maxPrices;
+    private long[] firstPrices;
+    private long[] lastPrices;
+    private int[] counts;
+    private int size;
+    /**
+     * Whether the last bucket is held by the fields below rather than the columns, which is the case unless a
+     * roll up is about to rebuild it.
+     */
+    private boolean open;
+    private long openMinPrice;
+    private long openMaxPrice;
+    private long openLastPrice;
+    private int openCount;
+
+    private CandleIndex(long[] starts, long[] minPrices, long[] maxPrices, long[] firstPrices,
+                        long[] lastPrices, int[] counts, int size, boolean open) {
+        this.starts = starts;
+        this.minPrices = minPrices;
+        this.maxPrices = maxPrices;
+        this.firstPrices = firstPrices;
+        this.lastPrices = lastPrices;
+        this.counts = counts;
+        this.size = size;
+        this.open = open;
+    }
+
+    /**
+     * Buckets rows {@code [fromRow, toRow)}, sorted by timestamp and not older than the last bucket,
+     * into a newer index. Bucket boundaries are resolved once per bucket, not once per row.
+     * Must only be called on the latest index of the symbol and resolution.
+     */
+    CandleIndex append(long[] timestamps, long[] prices, int fromRow, int toRow, CandleResolution resolution,
+                       ZoneId zone) {
+        if (fromRow >= toRow) {
+            return this;
+        }
+        CandleIndex index = extend(size);
+        long bucketEnd = size == 0 ? Long.MIN_VALUE : resolution.getNextBucketStart(starts[size - 1], zone);
+        for (int row = fromRow; row < toRow; row++) {
+            long timestamp = timestamps[row];
+            if (timestamp >= bucketEnd) {
+                long start = resolution.getBucketStart(timestamp, zone);
+                bucketEnd = resolution.getNextBucketStart(start, zone);
+                index.startBucket(start, prices[row]);
+            }
+            index.add(prices[row], prices[row], prices[row], 1);
+        }
+        return index;
+    }
+
+    /**
+     * Rebuilds the last bucket of this index and adds the following ones from the candles of a finer resolution,
+     * whose buckets must each lie within one bucket of {@code resolution}.
+     * Must only be called on the latest index of the symbol and resolution.
+     */
+    CandleIndex rollUp(CandleIndex finer, CandleResolution resolution, ZoneId zone) {
+        int fromFiner = size == 0 ? 0 : finer.lowerBound(starts[size - 1]);
+        CandleIndex index = extend(Math.max(size - 1, 0));
+        long bucketEnd = Long.MIN_VALUE;
+        for (int candle = fromFiner; candle < finer.size; candle++) {
+            long finerStart = finer.starts[candle];
+            if (finerStart >= bucketEnd) {
+                long start = resolution.getBucketStart(finerStart, zone);
+                bucketEnd = resolution.getNextBucketStart(start, zone);
+                index.startBucket(start, finer.firstPrices[candle]);
+            }
+            index.add(finer.getMinPrice(candle), finer.getMaxPrice(candle), finer.getLastPrice(candle),
+                    finer.getCount(candle));
+        }
+        return index;
+    }
+
+    /**
+     * @return index sharing the columns of this one, with its first {@code size} buckets
+     */
+    private CandleIndex extend(int size) {
+        boolean keepsLast = size == this.size && open;
+        CandleIndex index = new CandleIndex(starts, minPrices, maxPrices, firstPrices, lastPrices, counts, size,
+                keepsLast);
+        if (keepsLast) {
+            index.openMinPrice = openMinPrice;
+            index.openMaxPrice = openMaxPrice;
+            index.openLastPrice = openLastPrice;
+            index.openCount = openCount;
+        }
+        return index;
+    }
+
+    /**
+     * Only used while the index is built, before it is published. Closes the last bucket, which no older index
+     * reads from the columns.
+     */
+    private void startBucket(long start, long firstPrice) {
+        if (open) {
+            int last = size - 1;
+            minPrices[last] = openMinPrice;
+            maxPrices[last] = openMaxPrice;
+            lastPrices[last] = openLastPrice;
+            counts[last] = openCount;
+        }
+        if (size == starts.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            minPrices = Arrays.copyOf(minPrices, capacity);
+            maxPrices = Arrays.copyOf(maxPrices, capacity);
+            firstPrices = Arrays.copyOf(firstPrices, capacity);
+            lastPrices = Arrays.copyOf(lastPrices, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        starts[size] = start;
+        firstPrices[size] = firstPrice;
+        openMinPrice = Long.MAX_VALUE;
+        openMaxPrice = Long.MIN_VALUE;
+        openLastPrice = firstPrice;
+        openCount = 0;
+        open = true;
+        size++;
+    }
+
+    private void add(long minPrice, long maxPrice, long lastPrice, int count) {
+        openMinPrice = Math.min(openMinPrice, minPrice);
+        openMaxPrice = Math.max(openMaxPrice, maxPrice);
+        openLastPrice = lastPrice;
+        openCount += count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return first bucket starting at or after the timestamp, {@link #size()} if there is none
+     */
+    public int lowerBound(long timestamp) {
+        int index = Arrays.binarySearch(starts, 0, size, timestamp);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return epoch millis of the start of the bucket
+     */
+    public long getStart(int index) {
+        return starts[index];
+    }
+
+    public long getMinPrice(int index) {
+        return isOpen(index) ? openMinPrice : minPrices[index];
+    }
+
+    public long getMaxPrice(int index) {
+        return isOpen(index) ? openMaxPrice : maxPrices[index];
+    }
+
+    public long getFirstPrice(int index) {
+        return firstPrices[index];
+    }
+
+    public long getLastPrice(int index) {
+        return isOpen(index) ? openLastPrice : lastPrices[index];
+    }
+
+    public int getCount(int index) {
+        return isOpen(index) ? openCount : counts[index];
+    }
+
+    private boolean isOpen(int index) {
+        return open && index == size - 1;
+    }
+}
@@ -0,0 +1,84 @@
+package com.xm.recommendationservice.repository;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Optional;
+
+/**
+ * Length of the {@link CandleIndex} buckets, in local time of the zone the index is built for, so days start
+ * at local midnight and weeks on Monday. Every bucket lies within one bucket of the next coarser resolution.
+ */
+public enum CandleResolution {
+
+    HOUR("1h") {
+        @Override
+        long getBucketStart(long timestamp, ZoneId zone) {
+            return Instant.ofEpochMilli(timestamp).atZone(zone).truncatedTo(ChronoUnit.HOURS).toInstant().toEpochMilli();
+        }
+
+        @Override
+        long getNextBucketStart(long bucketStart, ZoneId zone) {
+            return Instant.ofEpochMilli(bucketStart).atZone(zone).plusHours(1).toInstant().toEpochMilli();
+        }
+    },
+    DAY("1d") {
+        @Override
+        long getBucketStart(long timestamp, ZoneId zone) {
+            return startOf(toDate(timestamp, zone), zone);
+        }
+
+        @Override
+        long getNextBucketStart(long bucketStart, ZoneId zone) {
+            return startOf(toDate(bucketStart, zone).plusDays(1), zone);
+        }
+    },
+    WEEK("1w") {
+        @Override
+        long getBucketStart(long timestamp, ZoneId zone) {
+            return startOf(toDate(timestamp, zone).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)), zone);
+        }
+
+        @Override
+        long getNextBucketStart(long bucketStart, ZoneId zone) {
+            return startOf(toDate(bucketStart, zone).plusWeeks(1), zone);
+        }
+    };
+
+    private final String name;
+
+    CandleResolution(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static Optional<CandleResolution> fromName(String name) {
+        for (CandleResolution resolution : values()) {
+            if (resolution.name.equals(name)) {
+                return Optional.of(resolution);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return epoch millis of the start of the bucket holding the timestamp
+     */
+    abstract long getBucketStart(long timestamp, ZoneId zone);
+
+    abstract long getNextBucketStart(long bucketStart, ZoneId zone);
+
+    private static LocalDate toDate(long timestamp, ZoneId zone) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), zone);
+    }
+
+    private static long startOf(LocalDate date, ZoneId zone) {
+        return date.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,384 @@
+package com.xm.recommendationservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Bounds the heap taken by the timestamp, price and price scale columns of all symbols. When the admitted columns take
+ * more than {@code maxResidentBytes}, the least recently used ones are paged out to files of raw values, which are
+ * memory-mapped and read from there, leaving caching to the page cache of the operating system. Columns whose rows
+ * keep being read from the mapping are copied back to the heap, paging others out. The {@link PriceSummary}, candles and range index
+ * of a symbol always stay on the heap, so ranking all symbols reads at most a few rows of the paged out ones.
+ * <p>
+ * Recency is tracked with the clock algorithm: an access only sets a flag of the columns, the sweep looking for
+ * columns to page out clears it and pages out the first columns found without it. The files of a version of the
+ * columns are written on its first page out. A version appended to paged out columns keeps only its new rows on the
+ * heap and appends them to the same files on its own page out, so the rows before are neither copied back nor written
+ * again. The files are deleted once no version using them is reachable, so readers still holding an older version
+ * can read it.
+ */
+@Slf4j
+public final class ColumnStore {
+
+    /**
+     * Keeps every column on the heap.
+     */
+    static final ColumnStore UNBOUNDED = new ColumnStore(0, null);
+    static final String FILE_SUFFIX = ".columns";
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final int WRITE_BUFFER_LONGS = 64 * 1024;
+
+    private final long maxResidentBytes;
+    private final String configuredDirectory;
+    /**
+     * Resident admitted columns in clock order, the hand being the first one.
+     */
+    private final Set<PriceColumns> clock = new LinkedHashSet<>();
+    /**
+     * Number of resident admitted columns using each array. A version appended to another one shares its arrays,
+     * which are counted in {@link #residentBytes} once.
+     */
+    private final Map<Object, Integer> residentArrays = new IdentityHashMap<>();
+    private Path directory;
+    private long residentBytes;
+    private long fileNumber;
+    private long pageIns;
+    private long pageOuts;
+
+    /**
+     * @param maxResidentBytes bytes of admitted columns kept on the heap, no limit when 0
+     * @param directory        folder of the paged out columns, a temporary folder when empty
+     */
+    public ColumnStore(long maxResidentBytes, String directory) {
+        this.maxResidentBytes = maxResidentBytes;
+        this.configuredDirectory = directory;
+    }
+
+    public boolean isBounded() {
+        return maxResidentBytes > 0;
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public synchronized long getPageIns() {
+        return pageIns;
+    }
+
+    public synchronized long getPageOuts() {
+        return pageOuts;
+    }
+
+    /**
+     * Lets the store page the columns out from now on. Columns of other stores and columns already admitted are
+     * left as they are.
+     */
+    synchronized void admit(PriceColumns columns) {
+        if (!isBounded() || columns.store != null) {
+            return;
+        }
+        columns.store = this;
+        PriceColumns.Resident resident = columns.resident;
+        if (resident != null) {
+            clock.add(columns);
+            count(resident);
+            pageOutBeyondLimit(columns);
+        }
+    }
+
+    /**
+     * Stops counting columns that are no longer published, e.g. replaced by a newer version. Their heap and
+     * mapping are freed with the last reader.
+     */
+    synchronized void release(PriceColumns columns) {
+        if (columns.store != this || columns.released) {
+            return;
+        }
+        columns.released = true;
+        if (clock.remove(columns)) {
+            uncount(columns.resident);
+        }
+    }
+
+    /**
+     * Copies paged out columns back to the heap, paging out others if needed.
+     */
+    synchronized void promote(PriceColumns columns) {
+        PriceColumns.Resident current = columns.resident;
+        if (current != null && current.from == 0 || columns.released) {
+            return;
+        }
+        PriceColumns.Resident resident = columns.copy(0);
+        columns.resident = resident;
+        columns.referenced = true;
+        if (current == null) {
+            clock.add(columns);
+        } else {
+            uncount(current);
+        }
+        count(resident);
+        pageIns++;
+        pageOutBeyondLimit(columns);
+    }
+
+    /**
+     * Deletes the files of the paged out columns right away, so it is called once the prices are no longer read,
+     * on shutdown. Where the file system keeps the data of a deleted file until it is unmapped, as on Linux, columns
+     * still mapped stay readable.
+     */
+    public synchronized void close() {
+        if (directory == null) {
+            return;
+        }
+        try {
+            if (StringUtils.hasText(configuredDirectory)) {
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        if (file.getFileName().toString().endsWith(FILE_SUFFIX)) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            } else {
+                FileSystemUtils.deleteRecursively(directory);
+            }
+        } catch (IOException exception) {
+            log.warn("Could not delete the paged out prices in {}", directory, exception);
+        }
+    }
+
+    /**
+     * Pages out the columns not referenced since the last sweep until the resident columns fit, never {@code kept}.
+     */
+    private void pageOutBeyondLimit(PriceColumns kept) {
+        int remainingChecks = 2 * clock.size();
+        while (residentBytes > maxResidentBytes && remainingChecks-- > 0) {
+            Iterator<PriceColumns> hand = clock.iterator();
+            PriceColumns columns = hand.next();
+            hand.remove();
+            if (columns == kept || columns.referenced) {
+                columns.referenced = false;
+                clock.add(columns);
+                continue;
+            }
+            try {
+                pageOut(columns);
+            } catch (IOException exception) {
+                log.warn("Could not page out the prices of {}, keeping them in memory", columns.symbol, exception);
+                clock.add(columns);
+                return;
+            }
+        }
+    }
+
+    private void pageOut(PriceColumns columns) throws IOException {
+        PriceColumns.Resident resident = columns.resident;
+        PriceColumns.Mapped mapping = columns.mapped;
+        if (mapping == null) {
+            columns.file = write(columns, resident);
+            columns.mapped = map(columns.file, columns);
+        } else if (mapping.rows < columns.size) {
+            write(columns.file, resident, mapping.rows, columns.size);
+            columns.mapped = map(columns.file, columns);
+        }
+        columns.mappedReads = 0;
+        columns.resident = null;
+        uncount(resident);
+        pageOuts++;
+    }
+
+    private void count(PriceColumns.Resident resident) {
+        residentBytes += count(resident.timestamps, (long) resident.timestamps.length * Long.BYTES)
+                + count(resident.prices, (long) resident.prices.length * Long.BYTES)
+                + (resident.priceScales == null ? 0 : count(resident.priceScales, resident.priceScales.length));
+    }
+
+    /**
+     * @return the bytes of the array if no other resident columns use it
+     */
+    private long count(Object array, long bytes) {
+        return residentArrays.merge(array, 1, Integer::sum) == 1 ? bytes : 0;
+    }
+
+    private void uncount(PriceColumns.Resident resident) {
+        residentBytes -= uncount(resident.timestamps, (long) resident.timestamps.length * Long.BYTES)
+                + uncount(resident.prices, (long) resident.prices.length * Long.BYTES)
+                + (resident.priceScales == null ? 0 : uncount(resident.priceScales, resident.priceScales.length));
+    }
+
+    /**
+     * @return the bytes of the array if no other resident columns use it any more
+     */
+    private long uncount(Object array, long bytes) {
+        Integer users = residentArrays.merge(array, -1, (count, delta) -> count + delta == 0 ? null : count + delta);
+        return users == null ? bytes : 0;
+    }
+
+    private ColumnFile write(PriceColumns columns, PriceColumns.Resident resident) throws IOException {
+        if (directory == null) {
+            directory = StringUtils.hasText(configuredDirectory)
+                    ? Files.createDirectories(Paths.get(configuredDirectory))
+                    : Files.createTempDirectory("price-columns");
+        }
+        String prefix = columns.symbol + "-" + fileNumber++;
+        ColumnFile file = new ColumnFile(directory.resolve(prefix + "-timestamps" + FILE_SUFFIX),
+                directory.resolve(prefix + "-prices" + FILE_SUFFIX),
+                columns.hasPriceScales ? directory.resolve(prefix + "-scales" + FILE_SUFFIX) : null);
+        FileDeletion deletion = new FileDeletion(file.timestamps, file.prices, file.priceScales);
+        try {
+            write(file, resident, 0, columns.size);
+        } catch (IOException exception) {
+            deletion.run();
+            throw exception;
+        }
+        CLEANER.register(file, deletion);
+        return file;
+    }
+
+    /**
+     * Writes rows {@code [fromRow, toRow)} at their place in the files, behind the rows already written.
+     */
+    private static void write(ColumnFile file, PriceColumns.Resident resident, int fromRow, int toRow)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_LONGS * Long.BYTES).order(ByteOrder.nativeOrder());
+        int offset = fromRow - resident.from;
+        int length = toRow - fromRow;
+        try (FileChannel channel = open(file.timestamps, (long) fromRow * Long.BYTES)) {
+            write(channel, buffer, resident.timestamps, offset, length);
+        }
+        try (FileChannel channel = open(file.prices, (long) fromRow * Long.BYTES)) {
+            write(channel, buffer, resident.prices, offset, length);
+        }
+        if (file.priceScales != null) {
+            try (FileChannel channel = open(file.priceScales, fromRow)) {
+                write(channel, buffer, resident.priceScales, offset, length);
+            }
+        }
+    }
+
+    private static FileChannel open(Path file, long position) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE).position(position);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long[] column, int offset, int length)
+            throws IOException {
+        for (int from = offset; from < offset + length; from += WRITE_BUFFER_LONGS) {
+            int chunkLength = Math.min(WRITE_BUFFER_LONGS, offset + length - from);
+            buffer.clear();
+            buffer.asLongBuffer().put(column, from, chunkLength);
+            buffer.limit(chunkLength * Long.BYTES);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, byte[] column, int offset, int length)
+            throws IOException {
+        int bufferBytes = WRITE_BUFFER_LONGS * Long.BYTES;
+        for (int from = offset; from < offset + length; from += bufferBytes) {
+            buffer.clear();
+            buffer.put(column, from, Math.min(bufferBytes, offset + length - from)).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static PriceColumns.Mapped map(ColumnFile file, PriceColumns columns) throws IOException {
+        int size = columns.size;
+        ByteBuffer[] priceScales = null;
+        if (file.priceScales != null) {
+            try (FileChannel channel = FileChannel.open(file.priceScales, StandardOpenOption.READ)) {
+                priceScales = new ByteBuffer[chunks(size)];
+                for (int chunk = 0; chunk < priceScales.length; chunk++) {
+                    priceScales[chunk] = map(channel, size, chunk, Byte.BYTES);
+                }
+            }
+        }
+        return new PriceColumns.Mapped(size, map(file.timestamps, size), map(file.prices, size), priceScales);
+    }
+
+    private static LongBuffer[] map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LongBuffer[] chunks = new LongBuffer[chunks(size)];
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                chunks[chunk] = map(channel, size, chunk, Long.BYTES).asLongBuffer();
+            }
+            return chunks;
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, int size, int chunk, int rowBytes) throws IOException {
+        long from = (long) chunk << PriceColumns.Mapped.CHUNK_SHIFT;
+        long length = Math.min(PriceColumns.Mapped.CHUNK_LONGS, size - from);
+        return channel.map(FileChannel.MapMode.READ_ONLY, from * rowBytes, length * rowBytes)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    private static int chunks(int size) {
+        return Math.max((size + PriceColumns.Mapped.CHUNK_LONGS - 1) >>> PriceColumns.Mapped.CHUNK_SHIFT, 1);
+    }
+
+    /**
+     * Files of the timestamp, price and, if the rows have their own, price scale columns, each holding its values
+     * back to back, so rows are appended at the end of each file.
+     */
+    static final class ColumnFile {
+
+        private final Path timestamps;
+        private final Path prices;
+        private final Path priceScales;
+
+        private ColumnFile(Path timestamps, Path prices, Path priceScales) {
+            this.timestamps = timestamps;
+            this.prices = prices;
+            this.priceScales = priceScales;
+        }
+    }
+
+    /**
+     * Must not reference the column file, or it would never become unreachable.
+     */
+    private static final class FileDeletion implements Runnable {
+
+        private final Path[] files;
+
+        private FileDeletion(Path... files) {
+            this.files = files;
+        }
+
+        @Override
+        public void run() {
+            for (Path file : files) {
+                if (file == null) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException exception) {
+                    log.debug("Could not delete {}", file, exception);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.xm.recommendationservice.repository;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the prices of all cryptocurrencies in memory. Every update publishes a new immutable snapshot,
+ * so readers never block and always see a consistent set of prices.
+ * <p>
+ * With {@code prices.resident-columns-max-bytes} set, the price columns of the published symbols are kept within
+ * that size by a {@link ColumnStore} paging the least recently read ones out to files.
+ */
+@Repository
+public class InMemoryPriceRepository implements PriceRepository {
+
+    private volatile Map<String, SymbolPrices> pricesBySymbol = Collections.emptyMap();
+    private volatile long version;
+    private final List<PriceUpdateListener> listeners = new ArrayList<>();
+    private final ColumnStore columnStore;
+
+    public InMemoryPriceRepository() {
+        this(ColumnStore.UNBOUNDED);
+    }
+
+    @Autowired
+    public InMemoryPriceRepository(PriceProperties priceProperties) {
+        this(new ColumnStore(priceProperties.getResidentColumnsMaxBytes(), priceProperties.getColumnDirectory()));
+    }
+
+    InMemoryPriceRepository(ColumnStore columnStore) {
+        this.columnStore = columnStore;
+    }
+
+    @Override
+    public Optional<SymbolPrices> findBySymbol(String symbol) {
+        return Optional.ofNullable(pricesBySymbol.get(symbol));
+    }
+
+    @Override
+    public Collection<SymbolPrices> findAll() {
+        return pricesBySymbol.values();
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    public ColumnStore getColumnStore() {
+        return columnStore;
+    }
+
+    /**
+     * Lets the columns of prices about to be saved be paged out already, so reading many symbols at once
+     * stays within the configured size.
+     */
+    public void admit(SymbolPrices prices) {
+        columnStore.admit(prices.columns());
+    }
+
+    /**
+     * Atomically replaces the prices of the saved symbols and removes the deleted ones.
+     */
+    public synchronized void update(Collection<SymbolPrices> saved, Collection<String> deleted) {
+        if (saved.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+        Map<String, SymbolPrices> updated = new HashMap<>(pricesBySymbol);
+        for (SymbolPrices prices : saved) {
+            admit(prices);
+            release(updated.put(prices.getSymbol(), prices), prices);
+        }
+        for (String symbol : deleted) {
+            release(updated.remove(symbol), null);
+        }
+        Map<String, SymbolPrices> published = Collections.unmodifiableMap(updated);
+        for (PriceUpdateListener listener : listeners) {
+            listener.onUpdate(published, saved, deleted);
+        }
+        pricesBySymbol = published;
+        version++;
+    }
+
+    @PreDestroy
+    public void close() {
+        columnStore.close();
+    }
+
+    private void release(SymbolPrices replaced, SymbolPrices replacement) {
+        if (replaced != null && replaced != replacement) {
+            columnStore.release(replaced.columns());
+        }
+    }
+
+    /**
+     * Registers a listener for the following updates and calls it right away with the current prices,
+     * all of them as saved.
+     */
+    public synchronized void addListener(PriceUpdateListener listener) {
+        listeners.add(listener);
+        listener.onUpdate(pricesBySymbol, pricesBySymbol.values(), Collections.emptyList());
+    }
+}
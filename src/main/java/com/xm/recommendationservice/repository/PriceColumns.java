@@ -0,0 +1,357 @@
+package com.xm.recommendationservice.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Timestamp, price and price scale columns of one version of {@link SymbolPrices}. They stay on the heap unless a bounded
+ * {@link ColumnStore} admitted them, which may page them out to memory-mapped files. Paged out rows are read from
+ * the mapping, and the columns are copied back to the heap once enough rows were read that way. A version appended to
+ * paged out columns only keeps its last rows on the heap and reads the rows before from the mapping it was appended to.
+ */
+final class PriceColumns {
+
+    /**
+     * Paged out columns are copied back to the heap once the rows read from the mapping reach this share of
+     * their rows, so the copy pays for itself.
+     */
+    private static final int PROMOTION_DIVISOR = 4;
+    private static final int MIN_PROMOTION_READS = 1024;
+
+    final String symbol;
+    final int size;
+    /**
+     * Whether the rows keep their own price scale, otherwise they all have the scale of the {@link SymbolPrices}.
+     */
+    final boolean hasPriceScales;
+    /**
+     * Rows {@code [resident.from, size)} on the heap, {@code null} while paged out. The rows before {@code from} are
+     * read from {@link #mapped}. Written by the {@link ColumnStore} only after {@link #mapped}, so a reader seeing
+     * {@code null} or a {@code from} also sees a mapping of the rows before.
+     */
+    volatile Resident resident;
+    /**
+     * Mapping of the first {@link Mapped#rows} rows of {@link #file}, set on the first page out or taken over from
+     * the paged out columns this version was appended to.
+     */
+    volatile Mapped mapped;
+    /**
+     * Set on every access, cleared by the {@link ColumnStore} looking for columns to page out. Races only delay
+     * a page out.
+     */
+    volatile boolean referenced;
+    /**
+     * Rows read from {@link #mapped} since the last page out or copy back. Races only delay copying the columns
+     * back.
+     */
+    volatile int mappedReads;
+    /**
+     * The store that may page the columns out, set once before the first page out, so before {@link #resident}
+     * is first set to {@code null}.
+     */
+    ColumnStore store;
+    /**
+     * Copy of the columns, written by the {@link #store} on the first page out and shared with the versions appended
+     * to them while paged out, which append their own rows on their page out. Written before {@link #mapped}.
+     */
+    ColumnStore.ColumnFile file;
+    /**
+     * No longer published, paged out columns are then only read from the mapping.
+     */
+    volatile boolean released;
+
+    /**
+     * @param resident rows on the heap, without price scales when all rows have the common scale
+     * @param base     columns whose mapping holds the rows before {@code resident.from}, {@code null} when the
+     *                 resident rows start at the first row
+     */
+    PriceColumns(String symbol, Resident resident, int size, PriceColumns base) {
+        this.symbol = symbol;
+        this.size = size;
+        this.hasPriceScales = resident.priceScales != null;
+        if (base != null) {
+            this.mapped = base.mapped;
+            this.file = base.file;
+        }
+        this.resident = resident;
+    }
+
+    long getTimestamp(int index) {
+        Resident current = resident;
+        if (current != null && index >= current.from) {
+            reference();
+            return current.timestamps[index - current.from];
+        }
+        return readMapped(1).getTimestamp(index);
+    }
+
+    long getPrice(int index) {
+        Resident current = resident;
+        if (current != null && index >= current.from) {
+            reference();
+            return current.prices[index - current.from];
+        }
+        return readMapped(1).getPrice(index);
+    }
+
+    /**
+     * Only for columns {@link #hasPriceScales with price scales}.
+     */
+    int getPriceScale(int index) {
+        Resident current = resident;
+        if (current != null && index >= current.from) {
+            reference();
+            return current.priceScales[index - current.from];
+        }
+        return readMapped(1).getPriceScale(index);
+    }
+
+    /**
+     * @return index of the first row not older than the timestamp, {@link #size} if there is none
+     */
+    int lowerBound(long timestamp) {
+        Resident current = resident;
+        if (current != null && (current.from == 0 || current.from < size && current.timestamps[0] < timestamp)) {
+            reference();
+            long[] timestamps = current.timestamps;
+            int offset = current.from;
+            int low = offset;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (timestamps[middle - offset] < timestamp) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+        int low = 0;
+        int high = current == null ? size : current.from;
+        Mapped mapping = readMapped(32 - Integer.numberOfLeadingZeros(high));
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mapping.getTimestamp(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return lowest price of rows {@code [from, to)}, {@code from < to}
+     */
+    long scanMin(int from, int to) {
+        Resident current = resident;
+        if (current != null && from >= current.from) {
+            reference();
+            long[] prices = current.prices;
+            int offset = current.from;
+            long min = prices[from - offset];
+            for (int i = from + 1 - offset; i < to - offset; i++) {
+                min = Math.min(min, prices[i]);
+            }
+            return min;
+        }
+        int mappedTo = current == null ? to : Math.min(to, current.from);
+        Mapped mapping = readMapped(mappedTo - from);
+        long min = mapping.getPrice(from);
+        for (int i = from + 1; i < mappedTo; i++) {
+            min = Math.min(min, mapping.getPrice(i));
+        }
+        return mappedTo < to ? Math.min(min, scanMin(mappedTo, to)) : min;
+    }
+
+    /**
+     * @return highest price of rows {@code [from, to)}, {@code from < to}
+     */
+    long scanMax(int from, int to) {
+        Resident current = resident;
+        if (current != null && from >= current.from) {
+            reference();
+            long[] prices = current.prices;
+            int offset = current.from;
+            long max = prices[from - offset];
+            for (int i = from + 1 - offset; i < to - offset; i++) {
+                max = Math.max(max, prices[i]);
+            }
+            return max;
+        }
+        int mappedTo = current == null ? to : Math.min(to, current.from);
+        Mapped mapping = readMapped(mappedTo - from);
+        long max = mapping.getPrice(from);
+        for (int i = from + 1; i < mappedTo; i++) {
+            max = Math.max(max, mapping.getPrice(i));
+        }
+        return mappedTo < to ? Math.max(max, scanMax(mappedTo, to)) : max;
+    }
+
+    /**
+     * Reads rows {@code [0, size)} in order without counting them as reads, so reading every row once, like writing a
+     * snapshot, neither copies paged out columns back to the heap nor keeps resident ones from being paged out.
+     *
+     * @param scale price scale of the rows when the columns have no {@link #hasPriceScales price scales}
+     */
+    void forEachRow(int scale, SymbolPrices.RowConsumer consumer) {
+        Resident current = resident;
+        int mappedTo = current == null ? size : current.from;
+        if (mappedTo > 0) {
+            Mapped mapping = mapped;
+            for (int i = 0; i < mappedTo; i++) {
+                consumer.accept(mapping.getTimestamp(i), mapping.getPrice(i),
+                        hasPriceScales ? mapping.getPriceScale(i) : scale);
+            }
+        }
+        for (int i = mappedTo; i < size; i++) {
+            int row = i - current.from;
+            consumer.accept(current.timestamps[row], current.prices[row],
+                    hasPriceScales ? current.priceScales[row] : scale);
+        }
+    }
+
+    /**
+     * @return all rows on the heap, copied from the mapping as far as they are paged out
+     */
+    Resident toResident() {
+        Resident current = resident;
+        if (current != null && current.from == 0) {
+            return current;
+        }
+        return copy(0);
+    }
+
+    /**
+     * Copies rows {@code [from, size)} to new arrays without counting them as reads.
+     */
+    Resident copy(int from) {
+        Resident current = resident;
+        int mappedTo = current == null ? size : Math.max(from, current.from);
+        int rows = size - from;
+        long[] timestamps = new long[rows];
+        long[] prices = new long[rows];
+        byte[] priceScales = hasPriceScales ? new byte[rows] : null;
+        if (from < mappedTo) {
+            mapped.copy(from, mappedTo, timestamps, prices, priceScales);
+        }
+        if (mappedTo < size) {
+            int offset = mappedTo - current.from;
+            System.arraycopy(current.timestamps, offset, timestamps, mappedTo - from, size - mappedTo);
+            System.arraycopy(current.prices, offset, prices, mappedTo - from, size - mappedTo);
+            if (priceScales != null) {
+                System.arraycopy(current.priceScales, offset, priceScales, mappedTo - from, size - mappedTo);
+            }
+        }
+        return new Resident(timestamps, prices, priceScales, from);
+    }
+
+    /**
+     * @return bytes of the columns on the heap, including capacity reserved for appended rows, 0 while paged out
+     */
+    long getResidentBytes() {
+        Resident current = resident;
+        return current == null ? 0 : current.getBytes();
+    }
+
+    private void reference() {
+        if (!referenced) {
+            referenced = true;
+        }
+    }
+
+    /**
+     * Counts the rows read from the mapping, unless the columns were released or never admitted and are never copied
+     * back, and asks the store to copy them back once per {@link #PROMOTION_DIVISOR share} of their rows read.
+     */
+    private Mapped readMapped(int rows) {
+        Mapped mapping = mapped;
+        if (!released && store != null) {
+            int reads = mappedReads + rows;
+            if (reads >= Math.max(size / PROMOTION_DIVISOR, MIN_PROMOTION_READS)) {
+                mappedReads = 0;
+                store.promote(this);
+            } else {
+                mappedReads = reads;
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Rows {@code [from, from + length)} of the columns, the arrays may be longer than the rows of the columns.
+     */
+    static final class Resident {
+
+        final long[] timestamps;
+        final long[] prices;
+        final byte[] priceScales;
+        final int from;
+
+        Resident(long[] timestamps, long[] prices, byte[] priceScales, int from) {
+            this.timestamps = timestamps;
+            this.prices = prices;
+            this.priceScales = priceScales;
+            this.from = from;
+        }
+
+        long getBytes() {
+            return (long) (timestamps.length + prices.length) * Long.BYTES
+                    + (priceScales == null ? 0 : priceScales.length);
+        }
+    }
+
+    /**
+     * Columns of files holding the timestamps and the prices as longs in native byte order, and the price scales as
+     * bytes if the rows have their own. Each column is mapped in chunks of rows, as a single mapping is limited to
+     * 2 GB.
+     */
+    static final class Mapped {
+
+        static final int CHUNK_SHIFT = 27;
+        static final int CHUNK_LONGS = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_LONGS - 1;
+
+        final int rows;
+        private final LongBuffer[] timestamps;
+        private final LongBuffer[] prices;
+        private final ByteBuffer[] priceScales;
+
+        Mapped(int rows, LongBuffer[] timestamps, LongBuffer[] prices, ByteBuffer[] priceScales) {
+            this.rows = rows;
+            this.timestamps = timestamps;
+            this.prices = prices;
+            this.priceScales = priceScales;
+        }
+
+        long getTimestamp(int index) {
+            return timestamps[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+        }
+
+        long getPrice(int index) {
+            return prices[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+        }
+
+        int getPriceScale(int index) {
+            return priceScales[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+        }
+
+        /**
+         * Copies rows {@code [from, to)} to the start of the arrays.
+         */
+        void copy(int from, int to, long[] timestampColumn, long[] priceColumn, byte[] priceScaleColumn) {
+            for (int row = from; row < to; ) {
+                int chunk = row >>> CHUNK_SHIFT;
+                int length = (int) Math.min(to - row, CHUNK_LONGS - (row & CHUNK_MASK));
+                int position = row & CHUNK_MASK;
+                timestamps[chunk].duplicate().position(position).get(timestampColumn, row - from, length);
+                prices[chunk].duplicate().position(position).get(priceColumn, row - from, length);
+                if (priceScaleColumn != null) {
+                    priceScales[chunk].duplicate().position(position).get(priceScaleColumn, row - from, length);
+                }
+                row += length;
+            }
+        }
+    }
+}
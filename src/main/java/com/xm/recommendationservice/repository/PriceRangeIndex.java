@@ -0,0 +1,123 @@
+package com.xm.recommendationservice.repository;
+
+import java.util.Arrays;
+
+/**
+ * Min and max price of any range of rows of one cryptocurrency. Rows are grouped in blocks of
+ * {@value #BLOCK_SIZE}, and a sparse table over the complete blocks holds the min and max of every run of
+ * {@code 2^k} blocks, so the blocks covered by a range are answered by two lookups and at most two partial
+ * blocks are scanned in the price column. The table takes {@code log2(rows / BLOCK_SIZE) / 128} longs per row,
+ * under 8% of the columns for 10 million rows, and up to twice that with spare capacity.
+ * <p>
+ * A block never changes once complete, so appending rows only adds entries behind those of the current
+ * index. Like the columns of {@link SymbolPrices}, the levels keep spare capacity that a newer index may use.
+ */
+final class PriceRangeIndex {
+
+    static final int BLOCK_SIZE = 256;
+    static final PriceRangeIndex EMPTY = new PriceRangeIndex(new long[0][], new long[0][], 0);
+    private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_SIZE);
+
+    /**
+     * {@code minLevels[k][i]} is the min price of blocks {@code [i, i + 2^k)}.
+     */
+    private final long[][] minLevels;
+    private final long[][] maxLevels;
+    private final int blocks;
+
+    private PriceRangeIndex(long[][] minLevels, long[][] maxLevels, int blocks) {
+        this.minLevels = minLevels;
+        this.maxLevels = maxLevels;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Indexes the blocks completed by the first {@code size} rows of the column that are not indexed yet.
+     * Must only be called on the latest index of the symbol, with the rows it was built from unchanged.
+     *
+     * @param prices rows of the column from {@code firstRow}, which must not be behind the first block not indexed yet
+     */
+    PriceRangeIndex append(long[] prices, int firstRow, int size) {
+        int newBlocks = size >> BLOCK_SHIFT;
+        if (newBlocks <= blocks) {
+            return this;
+        }
+        int levels = 32 - Integer.numberOfLeadingZeros(newBlocks);
+        long[][] newMinLevels = Arrays.copyOf(minLevels, Math.max(levels, minLevels.length));
+        long[][] newMaxLevels = Arrays.copyOf(maxLevels, Math.max(levels, maxLevels.length));
+        for (int level = 0; level < levels; level++) {
+            int entries = newBlocks - (1 << level) + 1;
+            if (newMinLevels[level] == null || newMinLevels[level].length < entries) {
+                int capacity = Math.max(entries, newBlocks * 2 - (1 << level) + 1);
+                newMinLevels[level] = copyOf(newMinLevels[level], capacity);
+                newMaxLevels[level] = copyOf(newMaxLevels[level], capacity);
+            }
+        }
+        for (int block = blocks; block < newBlocks; block++) {
+            int row = (block << BLOCK_SHIFT) - firstRow;
+            long min = prices[row];
+            long max = prices[row];
+            for (int i = row + 1; i < row + BLOCK_SIZE; i++) {
+                min = Math.min(min, prices[i]);
+                max = Math.max(max, prices[i]);
+            }
+            newMinLevels[0][block] = min;
+            newMaxLevels[0][block] = max;
+        }
+        for (int level = 1; level < levels; level++) {
+            int half = 1 << (level - 1);
+            long[] lowerMins = newMinLevels[level - 1];
+            long[] lowerMaxes = newMaxLevels[level - 1];
+            int entries = newBlocks - (1 << level) + 1;
+            for (int i = Math.max(0, blocks - (1 << level) + 1); i < entries; i++) {
+                newMinLevels[level][i] = Math.min(lowerMins[i], lowerMins[i + half]);
+                newMaxLevels[level][i] = Math.max(lowerMaxes[i], lowerMaxes[i + half]);
+            }
+        }
+        return new PriceRangeIndex(newMinLevels, newMaxLevels, newBlocks);
+    }
+
+    /**
+     * @return lowest price of rows {@code [from, to)} of the column, {@code from < to}
+     */
+    long getMinPrice(PriceColumns columns, int from, int to) {
+        int firstBlock = (from + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        int endBlock = Math.min(to >> BLOCK_SHIFT, blocks);
+        if (firstBlock >= endBlock) {
+            return columns.scanMin(from, to);
+        }
+        int level = 31 - Integer.numberOfLeadingZeros(endBlock - firstBlock);
+        long min = Math.min(minLevels[level][firstBlock], minLevels[level][endBlock - (1 << level)]);
+        if (from < firstBlock << BLOCK_SHIFT) {
+            min = Math.min(min, columns.scanMin(from, firstBlock << BLOCK_SHIFT));
+        }
+        if (endBlock << BLOCK_SHIFT < to) {
+            min = Math.min(min, columns.scanMin(endBlock << BLOCK_SHIFT, to));
+        }
+        return min;
+    }
+
+    /**
+     * @return highest price of rows {@code [from, to)} of the column, {@code from < to}
+     */
+    long getMaxPrice(PriceColumns columns, int from, int to) {
+        int firstBlock = (from + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        int endBlock = Math.min(to >> BLOCK_SHIFT, blocks);
+        if (firstBlock >= endBlock) {
+            return columns.scanMax(from, to);
+        }
+        int level = 31 - Integer.numberOfLeadingZeros(endBlock - firstBlock);
+        long max = Math.max(maxLevels[level][firstBlock], maxLevels[level][endBlock - (1 << level)]);
+        if (from < firstBlock << BLOCK_SHIFT) {
+            max = Math.max(max, columns.scanMax(from, firstBlock << BLOCK_SHIFT));
+        }
+        if (endBlock << BLOCK_SHIFT < to) {
+            max = Math.max(max, columns.scanMax(endBlock << BLOCK_SHIFT, to));
+        }
+        return max;
+    }
+
+    private static long[] copyOf(long[] level, int capacity) {
+        return level == null ? new long[capacity] : Arrays.copyOf(level, capacity);
+    }
+}
@@ -0,0 +1,20 @@
+package com.xm.recommendationservice.repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Read access to the price history of every supported cryptocurrency.
+ * Implementations keep the data in memory, so none of the methods touch the disk.
+ */
+public interface PriceRepository {
+
+    Optional<SymbolPrices> findBySymbol(String symbol);
+
+    Collection<SymbolPrices> findAll();
+
+    /**
+     * @return number that changes every time the stored prices change
+     */
+    long getVersion();
+}
@@ -0,0 +1,37 @@
+package com.xm.recommendationservice.repository;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Aggregates of one cryptocurrency kept up to date while rows are added,
+ * so that min/max/oldest/newest lookups never scan the columns.
+ * Prices are unscaled, see {@link #getScale()}, and come with the scale their row was read with;
+ * ties keep the row that was added first.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class PriceSummary {
+
+    static final PriceSummary EMPTY = new PriceSummary(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    private final int count;
+    private final int scale;
+    private final long minPrice;
+    private final int minPriceScale;
+    private final long minPriceTimestamp;
+    private final long maxPrice;
+    private final int maxPriceScale;
+    private final long maxPriceTimestamp;
+    private final long oldestPrice;
+    private final int oldestPriceScale;
+    private final long oldestTimestamp;
+    private final long newestPrice;
+    private final int newestPriceScale;
+    private final long newestTimestamp;
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.xm.recommendationservice.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Keeps data derived from the prices up to date with the {@link InMemoryPriceRepository}.
+ */
+@FunctionalInterface
+public interface PriceUpdateListener {
+
+    /**
+     * Called by the single writer of the repository with the new prices before readers can see them,
+     * so derived data is never older than the prices it was derived from.
+     *
+     * @param pricesBySymbol the prices of all symbols after the update
+     * @param saved          prices of the symbols added or changed by the update
+     * @param deleted        symbols removed by the update
+     */
+    void onUpdate(Map<String, SymbolPrices> pricesBySymbol, Collection<SymbolPrices> saved, Collection<String> deleted);
+}
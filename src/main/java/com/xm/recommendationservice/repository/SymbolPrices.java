@@ -0,0 +1,174 @@
+package com.xm.recommendationservice.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable columnar price history of one cryptocurrency.
+ * Rows are sorted by timestamp; prices are stored as unscaled longs sharing one scale,
+ * so {@code 46813.21} with scale {@code 3} is kept as {@code 46813210}. Each row also keeps the scale it was read
+ * with, so {@link #getPriceValue(int)} gives back {@code 46813.21} and not {@code 46813.210}.
+ * The columns may be longer than {@link #size()}; a newer version of the symbol may use the spare capacity.
+ * Once admitted by a bounded {@link ColumnStore} the columns may be paged out to a memory-mapped file, while the
+ * {@link PriceSummary}, candles and range index stay in memory.
+ */
+public final class SymbolPrices {
+
+    private final String symbol;
+    private final PriceColumns columns;
+    private final int scale;
+    private final int size;
+    private final PriceSummary summary;
+    private final CandleIndex[] candles;
+    private final PriceRangeIndex rangeIndex;
+
+    SymbolPrices(String symbol, PriceColumns columns, int scale, PriceSummary summary, CandleIndex[] candles,
+                 PriceRangeIndex rangeIndex) {
+        this.symbol = symbol;
+        this.columns = columns;
+        this.scale = scale;
+        this.size = columns.size;
+        this.summary = summary;
+        this.candles = candles;
+        this.rangeIndex = rangeIndex;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return bytes taken by the timestamp, price and price scale columns in memory, including capacity reserved for appended
+     * rows, 0 while they are paged out
+     */
+    public long getColumnBytes() {
+        return columns.getResidentBytes();
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public PriceSummary getSummary() {
+        return summary;
+    }
+
+    public CandleIndex getCandles(CandleResolution resolution) {
+        return candles[resolution.ordinal()];
+    }
+
+    /**
+     * @return epoch millis of the row
+     */
+    public long getTimestamp(int index) {
+        return columns.getTimestamp(index);
+    }
+
+    /**
+     * @return unscaled price of the row, see {@link #getScale()}
+     */
+    public long getPrice(int index) {
+        return columns.getPrice(index);
+    }
+
+    /**
+     * @return the scale the price of the row was read with, at most {@link #getScale()}
+     */
+    public int getPriceScale(int index) {
+        return columns.hasPriceScales ? columns.getPriceScale(index) : scale;
+    }
+
+    /**
+     * @return whether some rows were read with another scale than {@link #getScale()}
+     */
+    public boolean hasPriceScales() {
+        return columns.hasPriceScales;
+    }
+
+    /**
+     * Passes every row in order to the consumer. Unlike the getters of single rows this does not count as reading
+     * paged out columns, so they are not copied back to the heap.
+     */
+    public void forEachRow(RowConsumer consumer) {
+        columns.forEachRow(scale, consumer);
+    }
+
+    /**
+     * @return lowest unscaled price of rows {@code [from, to)}, found in constant time, see {@link PriceRangeIndex}
+     */
+    public long getMinPrice(int from, int to) {
+        checkRange(from, to);
+        return rangeIndex.getMinPrice(columns, from, to);
+    }
+
+    /**
+     * @return highest unscaled price of rows {@code [from, to)}, found in constant time, see {@link PriceRangeIndex}
+     */
+    public long getMaxPrice(int from, int to) {
+        checkRange(from, to);
+        return rangeIndex.getMaxPrice(columns, from, to);
+    }
+
+    /**
+     * @return index of the first row not older than the timestamp, {@link #size()} if there is none
+     */
+    public int lowerBound(long timestamp) {
+        return columns.lowerBound(timestamp);
+    }
+
+    /**
+     * @return index of the first row newer than the timestamp, {@link #size()} if there is none
+     */
+    public int upperBound(long timestamp) {
+        return timestamp == Long.MAX_VALUE ? size : lowerBound(timestamp + 1);
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || from >= to || to > size) {
+            throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " of " + size);
+        }
+    }
+
+    PriceColumns columns() {
+        return columns;
+    }
+
+    PriceRangeIndex rangeIndex() {
+        return rangeIndex;
+    }
+
+    /**
+     * @return price of the row as it was read
+     */
+    public BigDecimal getPriceValue(int index) {
+        return toBigDecimal(getPrice(index), scale, getPriceScale(index));
+    }
+
+    public static BigDecimal toBigDecimal(long unscaledPrice, int scale) {
+        return BigDecimal.valueOf(unscaledPrice, scale);
+    }
+
+    /**
+     * @param priceScale scale the price was read with, the digits dropped from {@code scale} being zeros
+     */
+    public static BigDecimal toBigDecimal(long unscaledPrice, int scale, int priceScale) {
+        return BigDecimal.valueOf(unscaledPrice, scale).setScale(priceScale);
+    }
+
+    @FunctionalInterface
+    public interface RowConsumer {
+
+        /**
+         * @param price unscaled price, see {@link #getScale()}
+         * @param priceScale the scale the price was read with
+         */
+        void accept(long timestamp, long price, int priceScale);
+    }
+}
@@ -0,0 +1,300 @@
+package com.xm.recommendationservice.repository;
+
+import java.math.BigDecimal;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Collects rows of one cryptocurrency into primitive columns and maintains its {@link PriceSummary}
+ * and {@link PriceRangeIndex}. The {@link CandleIndex}es are bucketed in the system default zone, the zone prices
+ * are reported in.
+ * The common scale grows with the most precise price seen, the scale of each row is only kept when rows differ;
+ * rows that arrive out of order
+ * are sorted by timestamp on {@link #build()}, keeping the original order for equal timestamps.
+ * A builder is used for a single {@link #build()}.
+ */
+public class SymbolPricesBuilder {
+
+    private static final int INITIAL_CAPACITY = 128;
+
+    private final String symbol;
+    private final SymbolPrices base;
+    private long[] timestamps;
+    private long[] prices;
+    /**
+     * Scale of each row, {@code null} while all rows have {@link #scale}.
+     */
+    private byte[] priceScales;
+    private int scale;
+    private int size;
+    /**
+     * First row held by the arrays, the rows before are read from the paged out columns of {@link #base}.
+     */
+    private int firstRow;
+    private boolean sorted = true;
+    private boolean baseRowsChanged;
+    private boolean shared;
+
+    private long minPrice;
+    private int minPriceScale;
+    private long minPriceTimestamp;
+    private long maxPrice;
+    private int maxPriceScale;
+    private long maxPriceTimestamp;
+    private long oldestPrice;
+    private int oldestPriceScale;
+    private long oldestTimestamp;
+    private long newestPrice;
+    private int newestPriceScale;
+    private long newestTimestamp;
+
+    public SymbolPricesBuilder(String symbol) {
+        this(symbol, INITIAL_CAPACITY);
+    }
+
+    public SymbolPricesBuilder(String symbol, int expectedRows) {
+        this.symbol = symbol;
+        this.base = null;
+        this.timestamps = new long[Math.max(expectedRows, 1)];
+        this.prices = new long[Math.max(expectedRows, 1)];
+    }
+
+    private SymbolPricesBuilder(SymbolPrices base) {
+        this.symbol = base.getSymbol();
+        this.base = base;
+        PriceColumns.Resident columns = base.columns().resident;
+        this.shared = columns != null;
+        if (columns == null) {
+            int lastBlock = base.size() / PriceRangeIndex.BLOCK_SIZE * PriceRangeIndex.BLOCK_SIZE;
+            columns = base.columns().copy(lastBlock);
+        }
+        this.timestamps = columns.timestamps;
+        this.prices = columns.prices;
+        this.priceScales = columns.priceScales;
+        this.firstRow = columns.from;
+        this.scale = base.getScale();
+        this.size = base.size();
+        PriceSummary summary = base.getSummary();
+        this.minPrice = summary.getMinPrice();
+        this.minPriceScale = summary.getMinPriceScale();
+        this.minPriceTimestamp = summary.getMinPriceTimestamp();
+        this.maxPrice = summary.getMaxPrice();
+        this.maxPriceScale = summary.getMaxPriceScale();
+        this.maxPriceTimestamp = summary.getMaxPriceTimestamp();
+        this.oldestPrice = summary.getOldestPrice();
+        this.oldestPriceScale = summary.getOldestPriceScale();
+        this.oldestTimestamp = summary.getOldestTimestamp();
+        this.newestPrice = summary.getNewestPrice();
+        this.newestPriceScale = summary.getNewestPriceScale();
+        this.newestTimestamp = summary.getNewestTimestamp();
+    }
+
+    /**
+     * Starts from already published prices. New rows are written behind the rows of {@code base} into
+     * the same columns, so appending costs only the new rows and readers of {@code base} are not affected.
+     * Of paged out columns only the rows of the last block of the {@link PriceRangeIndex} are copied to the heap,
+     * the older rows stay in the mapping. The columns are copied only when existing rows have to change, e.g. for an
+     * older row or a finer scale.
+     * Must only be called with the latest prices of the symbol, from the single thread that updates them.
+     */
+    public static SymbolPricesBuilder appendingTo(SymbolPrices base) {
+        return new SymbolPricesBuilder(base);
+    }
+
+    public SymbolPricesBuilder add(long timestamp, BigDecimal price) {
+        BigDecimal value = price.scale() < 0 ? price.setScale(0) : price;
+        return add(timestamp, value.unscaledValue().longValueExact(), value.scale());
+    }
+
+    public SymbolPricesBuilder add(long timestamp, long unscaledPrice, int priceScale) {
+        if (priceScales == null && priceScale != scale && size > 0) {
+            keepPriceScales();
+        }
+        if (priceScale > scale) {
+            rescale(priceScale);
+        } else if (priceScale < scale) {
+            unscaledPrice = Math.multiplyExact(unscaledPrice, pow10(scale - priceScale));
+        }
+        if (size - firstRow == timestamps.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, (size - firstRow) * 2);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            if (priceScales != null) {
+                priceScales = Arrays.copyOf(priceScales, capacity);
+            }
+            shared = false;
+        }
+        if (size > 0 && timestamp < newestTimestamp) {
+            sorted = false;
+        }
+        timestamps[size - firstRow] = timestamp;
+        prices[size - firstRow] = unscaledPrice;
+        if (priceScales != null) {
+            priceScales[size - firstRow] = (byte) priceScale;
+        }
+        updateSummary(timestamp, unscaledPrice, priceScale);
+        size++;
+        return this;
+    }
+
+    public SymbolPrices build() {
+        if (!sorted) {
+            sortByTimestamp();
+        }
+        PriceSummary summary = size == 0 ? PriceSummary.EMPTY : new PriceSummary(size, scale,
+                minPrice, minPriceScale, minPriceTimestamp, maxPrice, maxPriceScale, maxPriceTimestamp,
+                oldestPrice, oldestPriceScale, oldestTimestamp, newestPrice, newestPriceScale, newestTimestamp);
+        CandleIndex[] candles = buildCandles();
+        PriceRangeIndex rangeIndex = base == null || baseRowsChanged
+                ? PriceRangeIndex.EMPTY.append(prices, 0, size)
+                : base.rangeIndex().append(prices, firstRow, size);
+        PriceColumns.Resident resident = new PriceColumns.Resident(timestamps, prices, priceScales, firstRow);
+        PriceColumns columns = new PriceColumns(symbol, resident, size, firstRow == 0 ? null : base.columns());
+        return new SymbolPrices(symbol, columns, scale, summary, candles, rangeIndex);
+    }
+
+    /**
+     * Appends the new rows to the finest candles and rolls each coarser resolution up from the previous one.
+     */
+    private CandleIndex[] buildCandles() {
+        ZoneId zone = ZoneId.systemDefault();
+        boolean rebuild = base == null || baseRowsChanged;
+        CandleResolution[] resolutions = CandleResolution.values();
+        CandleIndex[] candles = new CandleIndex[resolutions.length];
+        candles[0] = rebuild
+                ? CandleIndex.EMPTY.append(timestamps, prices, 0, size, resolutions[0], zone)
+                : base.getCandles(resolutions[0]).append(timestamps, prices, base.size() - firstRow, size - firstRow,
+                        resolutions[0], zone);
+        for (int i = 1; i < resolutions.length; i++) {
+            if (!rebuild && candles[i - 1] == base.getCandles(resolutions[i - 1])) {
+                candles[i] = base.getCandles(resolutions[i]);
+            } else {
+                CandleIndex coarser = rebuild ? CandleIndex.EMPTY : base.getCandles(resolutions[i]);
+                candles[i] = coarser.rollUp(candles[i - 1], resolutions[i], zone);
+            }
+        }
+        return candles;
+    }
+
+    private void updateSummary(long timestamp, long unscaledPrice, int priceScale) {
+        if (size == 0 || unscaledPrice < minPrice) {
+            minPrice = unscaledPrice;
+            minPriceScale = priceScale;
+            minPriceTimestamp = timestamp;
+        }
+        if (size == 0 || unscaledPrice > maxPrice) {
+            maxPrice = unscaledPrice;
+            maxPriceScale = priceScale;
+            maxPriceTimestamp = timestamp;
+        }
+        if (size == 0 || timestamp < oldestTimestamp) {
+            oldestPrice = unscaledPrice;
+            oldestPriceScale = priceScale;
+            oldestTimestamp = timestamp;
+        }
+        if (size == 0 || timestamp > newestTimestamp) {
+            newestPrice = unscaledPrice;
+            newestPriceScale = priceScale;
+            newestTimestamp = timestamp;
+        }
+    }
+
+    /**
+     * Starts recording the scale of each row, the rows so far having the common scale.
+     */
+    private void keepPriceScales() {
+        copyPagedOutRows();
+        priceScales = new byte[timestamps.length];
+        Arrays.fill(priceScales, 0, size, (byte) scale);
+    }
+
+    /**
+     * Multiplies every price to the finer scale, or changes nothing if a price would not fit in a long any more, so
+     * a rejected row leaves the rows before it as they were.
+     *
+     * @throws ArithmeticException if a price does not fit the finer scale
+     */
+    private void rescale(int newScale) {
+        long factor = pow10(newScale - scale);
+        if (size > 0 && (maxPrice > Long.MAX_VALUE / factor || minPrice < Long.MIN_VALUE / factor)) {
+            throw new ArithmeticException("Prices of " + symbol + " overflow at scale " + newScale);
+        }
+        copyPagedOutRows();
+        if (shared) {
+            timestamps = timestamps.clone();
+            prices = prices.clone();
+            shared = false;
+        }
+        for (int i = 0; i < size; i++) {
+            prices[i] = Math.multiplyExact(prices[i], factor);
+        }
+        minPrice = Math.multiplyExact(minPrice, factor);
+        maxPrice = Math.multiplyExact(maxPrice, factor);
+        oldestPrice = Math.multiplyExact(oldestPrice, factor);
+        newestPrice = Math.multiplyExact(newestPrice, factor);
+        scale = newScale;
+        baseRowsChanged = true;
+    }
+
+    private void sortByTimestamp() {
+        copyPagedOutRows();
+        long[] sourceTimestamps = timestamps;
+        Integer[] order = IntStream.range(0, size).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingLong(index -> sourceTimestamps[index]));
+        long[] sortedTimestamps = new long[size];
+        long[] sortedPrices = new long[size];
+        byte[] sortedPriceScales = priceScales == null ? null : new byte[size];
+        for (int i = 0; i < size; i++) {
+            sortedTimestamps[i] = timestamps[order[i]];
+            sortedPrices[i] = prices[order[i]];
+            if (sortedPriceScales != null) {
+                sortedPriceScales[i] = priceScales[order[i]];
+            }
+        }
+        timestamps = sortedTimestamps;
+        prices = sortedPrices;
+        priceScales = sortedPriceScales;
+        sorted = true;
+        shared = false;
+        baseRowsChanged = true;
+    }
+
+    /**
+     * Brings the rows before {@link #firstRow} to the heap, for changes to every row.
+     */
+    private void copyPagedOutRows() {
+        if (firstRow == 0) {
+            return;
+        }
+        PriceColumns.Resident columns = base.columns().copy(0);
+        int baseSize = base.size();
+        timestamps = copyBehind(columns.timestamps, timestamps, baseSize);
+        prices = copyBehind(columns.prices, prices, baseSize);
+        if (priceScales != null) {
+            byte[] allPriceScales = Arrays.copyOf(columns.priceScales, size);
+            System.arraycopy(priceScales, baseSize - firstRow, allPriceScales, baseSize, size - baseSize);
+            priceScales = allPriceScales;
+        }
+        firstRow = 0;
+        shared = false;
+    }
+
+    /**
+     * @return the base rows followed by the rows added since
+     */
+    private long[] copyBehind(long[] baseColumn, long[] column, int baseSize) {
+        long[] allRows = Arrays.copyOf(baseColumn, size);
+        System.arraycopy(column, baseSize - firstRow, allRows, baseSize, size - baseSize);
+        return allRows;
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result = Math.multiplyExact(result, 10L);
+        }
+        return result;
+    }
+}
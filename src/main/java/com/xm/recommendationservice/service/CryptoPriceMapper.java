@@ -0,0 +1,54 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.domain.Candle;
+import com.xm.recommendationservice.domain.CryptoPrice;
+import com.xm.recommendationservice.repository.CandleIndex;
+import com.xm.recommendationservice.repository.SymbolPrices;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Turns stored rows and candles into {@link CryptoPrice} and {@link Candle} objects, only for the rows
+ * a response actually contains.
+ */
+final class CryptoPriceMapper {
+
+    private CryptoPriceMapper() {
+    }
+
+    static CryptoPrice toCryptoPrice(SymbolPrices prices, int index) {
+        return new CryptoPrice(prices.getSymbol(), toLocalDateTime(prices.getTimestamp(index)),
+                prices.getPriceValue(index));
+    }
+
+    /**
+     * @param priceScale scale the price was read with, see {@link SymbolPrices#toBigDecimal(long, int, int)}
+     */
+    static CryptoPrice toCryptoPrice(String symbol, long timestamp, long unscaledPrice, int scale, int priceScale) {
+        return new CryptoPrice(symbol, toLocalDateTime(timestamp),
+                SymbolPrices.toBigDecimal(unscaledPrice, scale, priceScale));
+    }
+
+    /**
+     * Candle prices have the common scale of the symbol, as the rows they come from may have been read with
+     * different ones.
+     */
+    static Candle toCandle(CandleIndex candles, int index, int scale) {
+        return new Candle(toLocalDateTime(candles.getStart(index)),
+                SymbolPrices.toBigDecimal(candles.getFirstPrice(index), scale),
+                SymbolPrices.toBigDecimal(candles.getMaxPrice(index), scale),
+                SymbolPrices.toBigDecimal(candles.getMinPrice(index), scale),
+                SymbolPrices.toBigDecimal(candles.getLastPrice(index), scale),
+                candles.getCount(index));
+    }
+
+    static LocalDateTime toLocalDateTime(long timestamp) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+    }
+
+    static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,106 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.repository.PriceSummary;
+import com.xm.recommendationservice.repository.SymbolPrices;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Computes normalized ranges {@code (max - min) / min} on unscaled prices in {@code long} arithmetic.
+ * Both prices must have the same scale, which then cancels out. The result is a fixed-point number with
+ * the requested number of decimals, rounded up like {@link RoundingMode#CEILING}. Only prices too large
+ * for the intermediate products fall back to {@link BigDecimal}.
+ */
+final class NormalizedRangeCalculator {
+
+    static final int MAX_SCALE = 18;
+    static final Comparator<CryptoNormalizedRange> DESCENDING =
+            Comparator.comparingLong(CryptoNormalizedRange::getUnscaledNormalizedRange).reversed()
+                    .thenComparing(CryptoNormalizedRange::getSymbol);
+
+    private NormalizedRangeCalculator() {
+    }
+
+    /**
+     * @param scale number of decimals of the result, at most {@value #MAX_SCALE}
+     * @param minPrice the lower price, must be positive
+     * @return the unscaled normalized range, {@link Long#MAX_VALUE} if it does not fit into a {@code long}
+     */
+    static long calculate(long maxPrice, long minPrice, int scale) {
+        long difference = maxPrice - minPrice;
+        long result = difference / minPrice;
+        long remainder = difference % minPrice;
+        try {
+            for (int i = 0; i < scale; i++) {
+                remainder = Math.multiplyExact(remainder, 10L);
+                result = Math.addExact(Math.multiplyExact(result, 10L), remainder / minPrice);
+                remainder %= minPrice;
+            }
+            return remainder > 0 ? Math.addExact(result, 1L) : result;
+        } catch (ArithmeticException exception) {
+            BigInteger unscaled = BigDecimal.valueOf(difference)
+                    .divide(BigDecimal.valueOf(minPrice), scale, RoundingMode.CEILING)
+                    .unscaledValue();
+            return unscaled.bitLength() < Long.SIZE ? unscaled.longValue() : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return normalized range of rows {@code [from, to)} of the symbol, {@code null} when there are no such rows
+     * or their lowest price is not positive
+     */
+    static CryptoNormalizedRange calculate(SymbolPrices prices, int from, int to, int scale) {
+        if (from >= to) {
+            return null;
+        }
+        return calculate(prices.getSymbol(), prices.getMaxPrice(from, to), prices.getMinPrice(from, to), scale);
+    }
+
+    /**
+     * Answers from the {@link PriceSummary} when the period holds all or none of the rows of the symbol, so ranking
+     * periods like these never reads its price columns, which may be paged out.
+     *
+     * @return normalized range of the rows from {@code fromTime} (included) to {@code toTime} (excluded),
+     * {@code null} when there are no such rows or their lowest price is not positive
+     */
+    static CryptoNormalizedRange calculateInPeriod(SymbolPrices prices, long fromTime, long toTime, int scale) {
+        PriceSummary summary = prices.getSummary();
+        if (summary.isEmpty() || summary.getNewestTimestamp() < fromTime || summary.getOldestTimestamp() >= toTime) {
+            return null;
+        }
+        if (summary.getOldestTimestamp() >= fromTime && summary.getNewestTimestamp() < toTime) {
+            return calculate(prices.getSymbol(), summary.getMaxPrice(), summary.getMinPrice(), scale);
+        }
+        return calculate(prices, prices.lowerBound(fromTime), prices.lowerBound(toTime), scale);
+    }
+
+    /**
+     * Normalized range of two unscaled prices of the same symbol, {@code null} when the lowest price
+     * is not positive as the symbol has no normalized range then.
+     */
+    static CryptoNormalizedRange calculate(String symbol, long maxPrice, long minPrice, int scale) {
+        if (minPrice <= 0) {
+            return null;
+        }
+        return new CryptoNormalizedRange(symbol, calculate(maxPrice, minPrice, scale), scale);
+    }
+
+    /**
+     * @return the cryptos in descending order of the normalized range, cryptos with equal ranges ordered by symbol
+     */
+    static Set<CryptoNormalizedRange> rank(Collection<CryptoNormalizedRange> cryptos) {
+        List<CryptoNormalizedRange> sorted = new ArrayList<>(cryptos);
+        sorted.sort(DESCENDING);
+        return Collections.unmodifiableSet(new LinkedHashSet<>(sorted));
+    }
+}
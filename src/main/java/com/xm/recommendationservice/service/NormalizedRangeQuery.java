@@ -0,0 +1,42 @@
+package com.xm.recommendationservice.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Which prices of every crypto a cross-symbol ranking compares, answered by each node of the cluster for the
+ * symbols it owns. Times are epoch millis.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NormalizedRangeQuery {
+
+    private Type type;
+    private long from;
+    private long to;
+
+    public static NormalizedRangeQuery all() {
+        return new NormalizedRangeQuery(Type.ALL, 0, 0);
+    }
+
+    public enum Type {
+        /**
+         * All prices, {@code from} and {@code to} are not used.
+         */
+        ALL,
+        /**
+         * Prices of the days starting in {@code [from, to)}.
+         */
+        DAYS,
+        /**
+         * Prices in {@code [from, to)}.
+         */
+        BETWEEN,
+        /**
+         * Prices in {@code (from, to]}, the rolling window of length {@code to - from} ending at {@code to}.
+         */
+        ROLLING
+    }
+}
@@ -0,0 +1,57 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.domain.CryptoPrice;
+import com.xm.recommendationservice.repository.SymbolPrices;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Rows {@code [from, to)} of one cryptocurrency. {@link CryptoPrice} objects are created one at a time
+ * while iterating, so a page can be written out without holding all of its prices on the heap.
+ */
+public final class PricePage implements Iterable<CryptoPrice> {
+
+    private final SymbolPrices prices;
+    private final int from;
+    private final int to;
+    private final String nextCursor;
+
+    PricePage(SymbolPrices prices, int from, int to, String nextCursor) {
+        this.prices = prices;
+        this.from = from;
+        this.to = to;
+        this.nextCursor = nextCursor;
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    /**
+     * @return cursor of the following page or {@code null} if this is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public Iterator<CryptoPrice> iterator() {
+        return new Iterator<>() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public CryptoPrice next() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+                return CryptoPriceMapper.toCryptoPrice(prices, index++);
+            }
+        };
+    }
+}
@@ -1,208 +1,397 @@
 package com.xm.recommendationservice.service;
 
-import com.opencsv.bean.CsvToBeanBuilder;
+import com.xm.recommendationservice.cluster.PriceCluster;
+import com.xm.recommendationservice.config.PriceProperties;
 import com.xm.recommendationservice.constants.ErrorCode;
+import com.xm.recommendationservice.domain.Candle;
 import com.xm.recommendationservice.domain.CryptoNormalizedRange;
 import com.xm.recommendationservice.domain.CryptoPrice;
+import com.xm.recommendationservice.domain.CryptoStats;
+import com.xm.recommendationservice.domain.PriceStatistic;
 import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.repository.CandleIndex;
+import com.xm.recommendationservice.repository.CandleResolution;
+import com.xm.recommendationservice.repository.PriceRepository;
+import com.xm.recommendationservice.repository.PriceSummary;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "prices.service", description = "Time of the price queries", histogram = true)
 public class PriceService {
 
-    private static final String FOLDER_NAME = "prices";
-    private static final String FILE_SUFFIX = "_values.csv";
-    public static final String FILE_NAME_REGEXP = "..._values\\.csv";
+    private static final String CURSOR_SEPARATOR = ":";
+
+    private final PriceRepository priceRepository;
+    private final PriceProperties priceProperties;
+    private final SymbolAggregator symbolAggregator;
+    private final RollingNormalizedRangeRankings rollingRankings;
+    private final PriceCluster priceCluster;
+    private volatile NormalizedRangeRanking ranking;
 
     public List<CryptoPrice> getAllPrices(String symbol) throws ServiceException {
-        File file = getFileFromSymbol(symbol);
-        return getAllPrices(file);
+        return toList(getAllPrices(symbol, null, null));
+    }
+
+    /**
+     * @param cursor {@link PricePage#getNextCursor()} of the previous page, {@code null} for the first page
+     * @param limit  maximum number of prices in the page, {@code null} for no limit
+     */
+    public PricePage getAllPrices(String symbol, String cursor, Integer limit) throws ServiceException {
+        SymbolPrices prices = getSymbolPrices(symbol);
+        return getPage(prices, 0, prices.size(), cursor, limit);
     }
 
     public CryptoPrice getMinPrice(String symbol) throws ServiceException {
-        File file = getFileFromSymbol(symbol);
-        return getMinPrice(file);
+        return getMinPrice(symbol, getSummary(symbol));
     }
 
     public CryptoPrice getMaxPrice(String symbol) throws ServiceException {
-        File file = getFileFromSymbol(symbol);
-        return getMaxPrice(file);
+        return getMaxPrice(symbol, getSummary(symbol));
     }
 
     public CryptoPrice getOldestMonthPrice(String symbol) throws ServiceException {
-        return getAllPrices(symbol).stream()
-                .min(Comparator.comparing(CryptoPrice::getPriceTime))
-                .orElseThrow(() -> new ServiceException(ErrorCode.NO_SUCH_ELEMENT));
+        return getOldestPrice(symbol, getSummary(symbol));
     }
 
     public CryptoPrice getNewestMonthPrice(String symbol) throws ServiceException {
-        return getAllPrices(symbol).stream()
-                .max(Comparator.comparing(CryptoPrice::getPriceTime))
-                .orElseThrow(() -> new ServiceException(ErrorCode.NO_SUCH_ELEMENT));
+        return getNewestPrice(symbol, getSummary(symbol));
+    }
+
+    /**
+     * Answers the statistics of many cryptos at once, each from the aggregates kept for its prices.
+     * In a cluster every node is only asked for the symbols it owns.
+     *
+     * @param symbols    cryptos in the order of the result, repeated symbols are answered once
+     * @param statistics names of the {@link PriceStatistic}s to answer, all of them when empty
+     */
+    public List<CryptoStats> getStats(Collection<String> symbols, Collection<String> statistics)
+            throws ServiceException {
+        if (!priceCluster.isClustered()) {
+            return getLocalStats(symbols, statistics);
+        }
+        Map<String, List<String>> symbolsByOwner = new HashMap<>();
+        for (String symbol : new LinkedHashSet<>(symbols)) {
+            symbolsByOwner.computeIfAbsent(priceCluster.getRouter().getOwner(symbol), owner -> new ArrayList<>())
+                    .add(symbol);
+        }
+        Map<String, CryptoStats> statsBySymbol = new HashMap<>();
+        List<CryptoStats> gathered = priceCluster.gather(
+                node -> getLocalStats(symbolsByOwner.getOrDefault(node, List.of()), statistics),
+                node -> symbolsByOwner.containsKey(node)
+                        ? priceCluster.getClient().getStats(node, symbolsByOwner.get(node), statistics)
+                        : List.of());
+        gathered.forEach(stats -> statsBySymbol.put(stats.getSymbol(), stats));
+        List<CryptoStats> answer = new ArrayList<>(statsBySymbol.size());
+        for (String symbol : new LinkedHashSet<>(symbols)) {
+            answer.add(statsBySymbol.get(symbol));
+        }
+        return answer;
+    }
+
+    /**
+     * {@link #getStats(Collection, Collection)} of symbols of this node.
+     */
+    public List<CryptoStats> getLocalStats(Collection<String> symbols, Collection<String> statistics)
+            throws ServiceException {
+        Set<PriceStatistic> requested = EnumSet.noneOf(PriceStatistic.class);
+        for (String name : statistics) {
+            requested.add(PriceStatistic.fromName(name)
+                    .orElseThrow(() -> new ServiceException(ErrorCode.INVALID_STATISTIC)));
+        }
+        if (requested.isEmpty()) {
+            requested = EnumSet.allOf(PriceStatistic.class);
+        }
+        List<CryptoStats> answer = new ArrayList<>(symbols.size());
+        for (String symbol : new LinkedHashSet<>(symbols)) {
+            PriceSummary summary = getSummary(symbol);
+            CryptoStats stats = new CryptoStats(symbol);
+            if (requested.contains(PriceStatistic.MIN_PRICE)) {
+                stats.setMinPrice(getMinPrice(symbol, summary));
+            }
+            if (requested.contains(PriceStatistic.MAX_PRICE)) {
+                stats.setMaxPrice(getMaxPrice(symbol, summary));
+            }
+            if (requested.contains(PriceStatistic.OLDEST_MONTH_PRICE)) {
+                stats.setOldestMonthPrice(getOldestPrice(symbol, summary));
+            }
+            if (requested.contains(PriceStatistic.NEWEST_MONTH_PRICE)) {
+                stats.setNewestMonthPrice(getNewestPrice(symbol, summary));
+            }
+            answer.add(stats);
+        }
+        return answer;
     }
 
+    /**
+     * @return all cryptos in descending order of the normalized range, cryptos with equal ranges ordered by symbol.
+     * The ranking is computed once per version of the price data. Ranges have
+     * {@link PriceProperties#getNormalizedRangeScale()} decimals, rounded up.
+     */
     public Set<CryptoNormalizedRange> getAllCryptosWithNormalizedRange() throws ServiceException {
-        File directory = getDirectory();
-        File[] files = getAllSuitableFiles(directory);
-        if (files != null) {
-            return getCryptoNormalizedRangesSetInDescendingOrder(files);
-        } else {
-            throw new ServiceException(ErrorCode.COMMON_IO_EXCEPTION);
+        long version = priceCluster.getVersion();
+        NormalizedRangeRanking currentRanking = ranking;
+        if (currentRanking == null || currentRanking.version != version) {
+            currentRanking = new NormalizedRangeRanking(version,
+                    NormalizedRangeCalculator.rank(gatherNormalizedRanges(NormalizedRangeQuery.all())));
+            ranking = currentRanking;
         }
+        return currentRanking.cryptos;
     }
 
     public List<CryptoPrice> getAllPricesInPeriod(String symbol, LocalDateTime atDate, LocalDateTime toDate) throws ServiceException {
-        File file = getFileFromSymbol(symbol);
-        List<CryptoPrice> answer = getAllPrices(file).stream()
-                .filter(cryptoPrice ->
-                        {
-                            LocalDateTime priceDate = cryptoPrice.getPriceTime();
-                            return priceDate.isAfter(atDate) && priceDate.isBefore(toDate);
-                        }
-                ).collect(Collectors.toList());
-        if (CollectionUtils.isEmpty(answer)) {
+        return toList(getAllPricesInPeriod(symbol, atDate, toDate, null, null));
+    }
+
+    /**
+     * Prices strictly between the two dates. The bounds are found by binary search over the sorted timestamps.
+     *
+     * @param cursor {@link PricePage#getNextCursor()} of the previous page, {@code null} for the first page
+     * @param limit  maximum number of prices in the page, {@code null} for no limit
+     */
+    public PricePage getAllPricesInPeriod(String symbol, LocalDateTime atDate, LocalDateTime toDate,
+                                          String cursor, Integer limit) throws ServiceException {
+        SymbolPrices prices = getSymbolPrices(symbol);
+        int from = prices.upperBound(CryptoPriceMapper.toEpochMilli(atDate));
+        int to = prices.lowerBound(CryptoPriceMapper.toEpochMilli(toDate));
+        if (from >= to) {
             throw new ServiceException(ErrorCode.NO_SUCH_ELEMENT);
         }
-        return answer;
+        return getPage(prices, from, to, cursor, limit);
     }
 
     public CryptoNormalizedRange getCryptoWithHighestNormalizedRangeByDate(LocalDate date) throws ServiceException {
-        File directory = getDirectory();
-        File[] files = getAllSuitableFiles(directory);
-        if (files != null) {
-            return getCryptoWithHighestNormalizedRangeByDate(files, date);
-        } else {
-            throw new ServiceException(ErrorCode.COMMON_IO_EXCEPTION);
-        }
+        return gatherNormalizedRanges(getDaysQuery(date, date)).stream()
+                .min(NormalizedRangeCalculator.DESCENDING)
+                .orElseThrow(() -> new ServiceException(ErrorCode.NO_SUCH_ELEMENT));
     }
 
-    private Set<CryptoNormalizedRange> getCryptoNormalizedRangesSetInDescendingOrder(File[] files) {
-        Comparator<CryptoNormalizedRange> comparator =
-                Comparator.comparing(CryptoNormalizedRange::getNormalizedRange).reversed();
-        Set<CryptoNormalizedRange> allCryptos = new TreeSet<>(comparator);
-        for (File file : files) {
-            processFile(allCryptos, file);
-        }
-        return allCryptos;
+    /**
+     * @return cryptos having prices between the two days, both inclusive, in descending order of the normalized range
+     */
+    public Set<CryptoNormalizedRange> getCryptosWithNormalizedRangeInPeriod(LocalDate fromDate, LocalDate toDate)
+            throws ServiceException {
+        return NormalizedRangeCalculator.rank(gatherNormalizedRanges(getDaysQuery(fromDate, toDate)));
     }
 
-    private void processFile(Collection<CryptoNormalizedRange> allCryptos, File file) {
-        try {
-            CryptoPrice maxCryptoPrice = getMaxPrice(file);
-            CryptoPrice minCryptoPrice = getMinPrice(file);
-            CryptoNormalizedRange cryptoNormalizedRange = getCryptoNormalizedRange(maxCryptoPrice.getPriceValue(),
-                    minCryptoPrice.getPriceValue(), maxCryptoPrice.getCurrencySymbol());
-            allCryptos.add(cryptoNormalizedRange);
-        } catch (ServiceException exception) {
-            log.debug(exception.getMessage(), exception);
+    /**
+     * @return cryptos having prices from {@code fromTime}, inclusive, to {@code toTime}, exclusive, in descending
+     * order of the normalized range of those prices. The min and max price of every crypto are found in constant time.
+     */
+    public Set<CryptoNormalizedRange> getCryptosWithNormalizedRangeBetween(LocalDateTime fromTime, LocalDateTime toTime)
+            throws ServiceException {
+        if (!fromTime.isBefore(toTime)) {
+            throw new ServiceException(ErrorCode.INVALID_PERIOD);
         }
+        return NormalizedRangeCalculator.rank(gatherNormalizedRanges(new NormalizedRangeQuery(
+                NormalizedRangeQuery.Type.BETWEEN, CryptoPriceMapper.toEpochMilli(fromTime),
+                CryptoPriceMapper.toEpochMilli(toTime))));
     }
 
-    private CryptoNormalizedRange getCryptoWithHighestNormalizedRangeByDate(File[] files, LocalDate date)
+    /**
+     * @param window length of the window ending at the newest price of all cryptos, e.g. {@code 24h} or {@code 7d}
+     * @return cryptos having prices in the window in descending order of the normalized range of those prices.
+     * Rankings of the {@link PriceProperties#getRollingWindows()} are kept up to date on ingestion, other windows
+     * are computed on request. In a cluster the window ends at the newest price of all nodes.
+     */
+    public Set<CryptoNormalizedRange> getCryptosWithNormalizedRangeInRollingWindow(String window)
             throws ServiceException {
-        List<CryptoNormalizedRange> allCryptos = new ArrayList<>();
-        for (File file : files) {
-            try {
-                processFile(date, allCryptos, file);
-            } catch (ServiceException exception) {
-                log.debug(exception.getMessage(), exception);
+        Duration duration = parseWindow(window);
+        if (!priceCluster.isClustered()) {
+            Set<CryptoNormalizedRange> ranking = rollingRankings.get(duration);
+            if (ranking != null) {
+                return ranking;
             }
         }
-        return allCryptos.stream().max(Comparator.comparing(CryptoNormalizedRange::getNormalizedRange))
-                .orElseThrow(() -> new ServiceException(ErrorCode.NO_SUCH_ELEMENT));
+        long end = priceCluster.getNewestTimestamp();
+        return NormalizedRangeCalculator.rank(gatherNormalizedRanges(new NormalizedRangeQuery(
+                NormalizedRangeQuery.Type.ROLLING, end - duration.toMillis(), end)));
     }
 
-    private void processFile(LocalDate date, List<CryptoNormalizedRange> allCryptos, File file) throws ServiceException {
-        CryptoPrice maxDateCryptoPrice = getMaxDatePrice(file, date);
-        CryptoPrice minDateCryptoPrice = getMinDayPrice(file, date);
-        CryptoNormalizedRange cryptoNormalizedRange = getCryptoNormalizedRange(maxDateCryptoPrice.getPriceValue(),
-                minDateCryptoPrice.getPriceValue(), maxDateCryptoPrice.getCurrencySymbol());
-        allCryptos.add(cryptoNormalizedRange);
+    /**
+     * @return normalized ranges of the symbols of this node, in no particular order
+     */
+    public Collection<CryptoNormalizedRange> getLocalNormalizedRanges(NormalizedRangeQuery query) {
+        int scale = priceProperties.getNormalizedRangeScale();
+        long from = query.getFrom();
+        long to = query.getTo();
+        switch (query.getType()) {
+            case DAYS:
+                return symbolAggregator.map(priceRepository.findAll(), prices -> calculateForDays(prices, from, to));
+            case BETWEEN:
+                return symbolAggregator.map(priceRepository.findAll(), prices ->
+                        NormalizedRangeCalculator.calculateInPeriod(prices, from, to, scale));
+            case ROLLING:
+                Duration window = Duration.ofMillis(to - from);
+                Set<CryptoNormalizedRange> ranking = rollingRankings.get(window, to);
+                if (ranking != null) {
+                    return ranking;
+                }
+                return symbolAggregator.map(priceRepository.findAll(), prices ->
+                        RollingNormalizedRangeRankings.calculate(prices, window, to, scale));
+            default:
+                return symbolAggregator.map(priceRepository.findAll(), prices -> {
+                    PriceSummary summary = prices.getSummary();
+                    return summary.isEmpty() ? null : NormalizedRangeCalculator.calculate(prices.getSymbol(),
+                            summary.getMaxPrice(), summary.getMinPrice(), scale);
+                });
+        }
     }
 
-    private CryptoNormalizedRange getCryptoNormalizedRange(BigDecimal maxMonthPrice, BigDecimal minMonthPrice,
-                                                           String symbol) {
-        BigDecimal normalizedRange = maxMonthPrice.subtract(minMonthPrice).divide(minMonthPrice, RoundingMode.CEILING);
-        CryptoNormalizedRange cryptoNormalizedRange = new CryptoNormalizedRange();
-        cryptoNormalizedRange.setSymbol(symbol);
-        cryptoNormalizedRange.setNormalizedRange(normalizedRange);
-        return cryptoNormalizedRange;
+    private List<CryptoNormalizedRange> gatherNormalizedRanges(NormalizedRangeQuery query) throws ServiceException {
+        return priceCluster.gather(node -> getLocalNormalizedRanges(query),
+                node -> priceCluster.getClient().getNormalizedRanges(node, query));
     }
 
-    private List<CryptoPrice> getAllPrices(File file) throws ServiceException {
-        try (FileReader reader = new FileReader(file)) {
-            return new CsvToBeanBuilder<CryptoPrice>(reader)
-                    .withType(CryptoPrice.class)
-                    .build()
-                    .parse();
-        } catch (IOException exception) {
-            throw new ServiceException(ErrorCode.COMMON_IO_EXCEPTION, exception);
+    private static Duration parseWindow(String window) throws ServiceException {
+        try {
+            Duration duration = DurationStyle.detectAndParse(window);
+            if (duration.isNegative() || duration.isZero()) {
+                throw new ServiceException(ErrorCode.INVALID_PERIOD);
+            }
+            return duration;
+        } catch (IllegalArgumentException exception) {
+            throw new ServiceException(ErrorCode.INVALID_PERIOD, exception);
         }
     }
 
-    private File[] getAllSuitableFiles(File directory) {
-        return directory.listFiles(file ->
-                file.isFile() &&
-                        file.canRead() &&
-                        file.getName().matches(FILE_NAME_REGEXP));
+    /**
+     * @param resolution name of the {@link CandleResolution}, like {@code 1h}, {@code 1d} or {@code 1w}
+     * @param fromTime   start of the period, inclusive, {@code null} for the oldest candle
+     * @param toTime     end of the period, exclusive, {@code null} for the newest candle
+     * @return candles starting in the period, read from the candles rolled up for the resolution on ingestion
+     */
+    public List<Candle> getCandles(String symbol, String resolution, LocalDateTime fromTime, LocalDateTime toTime)
+            throws ServiceException {
+        CandleResolution candleResolution = CandleResolution.fromName(resolution)
+                .orElseThrow(() -> new ServiceException(ErrorCode.INVALID_RESOLUTION));
+        if (fromTime != null && toTime != null && !fromTime.isBefore(toTime)) {
+            throw new ServiceException(ErrorCode.INVALID_PERIOD);
+        }
+        SymbolPrices prices = getSymbolPrices(symbol);
+        CandleIndex candles = prices.getCandles(candleResolution);
+        int from = fromTime == null ? 0 : candles.lowerBound(CryptoPriceMapper.toEpochMilli(fromTime));
+        int to = toTime == null ? candles.size() : candles.lowerBound(CryptoPriceMapper.toEpochMilli(toTime));
+        List<Candle> answer = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            answer.add(CryptoPriceMapper.toCandle(candles, i, prices.getScale()));
+        }
+        return answer;
     }
 
-    private CryptoPrice getMinPrice(File file) throws ServiceException {
-        return getAllPrices(file).stream().min(Comparator.comparing(CryptoPrice::getPriceValue))
-                .orElseThrow(() -> new ServiceException(ErrorCode.NO_SUCH_ELEMENT));
+    /**
+     * @return query of the days from {@code fromDate} to {@code toDate}, both inclusive
+     */
+    private static NormalizedRangeQuery getDaysQuery(LocalDate fromDate, LocalDate toDate) {
+        return new NormalizedRangeQuery(NormalizedRangeQuery.Type.DAYS,
+                CryptoPriceMapper.toEpochMilli(fromDate.atStartOfDay()),
+                CryptoPriceMapper.toEpochMilli(toDate.plusDays(1).atStartOfDay()));
     }
 
-    private CryptoPrice getMaxPrice(File file) throws ServiceException {
-        return getAllPrices(file).stream().max(Comparator.comparing(CryptoPrice::getPriceValue))
-                .orElseThrow(() -> new ServiceException(ErrorCode.NO_SUCH_ELEMENT));
+    private CryptoNormalizedRange calculateForDays(SymbolPrices prices, long fromTime, long toTime) {
+        CandleIndex dailyCandles = prices.getCandles(CandleResolution.DAY);
+        int from = dailyCandles.lowerBound(fromTime);
+        int to = dailyCandles.lowerBound(toTime);
+        if (from >= to) {
+            return null;
+        }
+        long minPrice = dailyCandles.getMinPrice(from);
+        long maxPrice = dailyCandles.getMaxPrice(from);
+        for (int day = from + 1; day < to; day++) {
+            minPrice = Math.min(minPrice, dailyCandles.getMinPrice(day));
+            maxPrice = Math.max(maxPrice, dailyCandles.getMaxPrice(day));
+        }
+        return NormalizedRangeCalculator.calculate(prices.getSymbol(), maxPrice, minPrice,
+                priceProperties.getNormalizedRangeScale());
     }
 
-    private CryptoPrice getMinDayPrice(File file, LocalDate date) throws ServiceException {
-        return getAllPrices(file).stream()
-                .filter(cryptoPrice -> cryptoPrice.getPriceTime().toLocalDate().isEqual(date))
-                .min(Comparator.comparing(CryptoPrice::getPriceValue))
-                .orElseThrow(() -> new ServiceException(ErrorCode.NO_SUCH_ELEMENT));
+    private PricePage getPage(SymbolPrices prices, int from, int to, String cursor, Integer limit)
+            throws ServiceException {
+        if (limit != null && limit < 1) {
+            throw new ServiceException(ErrorCode.INVALID_PAGE_REQUEST);
+        }
+        int start = cursor == null ? from : Math.max(from, Math.min(to, decodeCursor(prices, cursor)));
+        int end = limit == null ? to : (int) Math.min(to, (long) start + limit);
+        String nextCursor = end < to ? encodeCursor(prices, end) : null;
+        return new PricePage(prices, start, end, nextCursor);
     }
 
-    private CryptoPrice getMaxDatePrice(File file, LocalDate date) throws ServiceException {
-        return getAllPrices(file).stream()
-                .filter(cryptoPrice -> cryptoPrice.getPriceTime().toLocalDate().isEqual(date))
-                .max(Comparator.comparing(CryptoPrice::getPriceValue))
-                .orElseThrow(() -> new ServiceException(ErrorCode.NO_SUCH_ELEMENT));
+    /**
+     * The cursor names the first row of the next page by its timestamp and its position among rows
+     * with the same timestamp, so it stays valid when newer prices are added.
+     */
+    private static String encodeCursor(SymbolPrices prices, int index) {
+        long timestamp = prices.getTimestamp(index);
+        return timestamp + CURSOR_SEPARATOR + (index - prices.lowerBound(timestamp));
     }
 
-    private File getFileFromSymbol(String symbol) throws ServiceException {
+    private static int decodeCursor(SymbolPrices prices, String cursor) throws ServiceException {
+        int separator = cursor.indexOf(CURSOR_SEPARATOR);
         try {
-            return new ClassPathResource(FOLDER_NAME + File.separator + symbol + FILE_SUFFIX).getFile();
-        } catch (FileNotFoundException exception) {
-            throw new ServiceException(ErrorCode.CURRENCY_NOT_SUPPORTED_YET, exception);
-        } catch (IOException exception) {
-            throw new ServiceException(ErrorCode.COMMON_IO_EXCEPTION, exception);
+            long timestamp = Long.parseLong(cursor.substring(0, separator));
+            int position = Integer.parseInt(cursor.substring(separator + 1));
+            if (position < 0) {
+                throw new ServiceException(ErrorCode.INVALID_PAGE_REQUEST);
+            }
+            return (int) Math.min((long) prices.lowerBound(timestamp) + position, prices.upperBound(timestamp));
+        } catch (NumberFormatException | IndexOutOfBoundsException exception) {
+            throw new ServiceException(ErrorCode.INVALID_PAGE_REQUEST, exception);
         }
     }
 
-    private File getDirectory() throws ServiceException {
-        try {
-            return new ClassPathResource(FOLDER_NAME).getFile();
-        } catch (IOException exception) {
-            throw new ServiceException(ErrorCode.COMMON_IO_EXCEPTION, exception);
+    private static List<CryptoPrice> toList(PricePage page) {
+        List<CryptoPrice> answer = new ArrayList<>(page.size());
+        page.forEach(answer::add);
+        return answer;
+    }
+
+    private static CryptoPrice getMinPrice(String symbol, PriceSummary summary) {
+        return CryptoPriceMapper.toCryptoPrice(symbol, summary.getMinPriceTimestamp(), summary.getMinPrice(),
+                summary.getScale(), summary.getMinPriceScale());
+    }
+
+    private static CryptoPrice getMaxPrice(String symbol, PriceSummary summary) {
+        return CryptoPriceMapper.toCryptoPrice(symbol, summary.getMaxPriceTimestamp(), summary.getMaxPrice(),
+                summary.getScale(), summary.getMaxPriceScale());
+    }
+
+    private static CryptoPrice getOldestPrice(String symbol, PriceSummary summary) {
+        return CryptoPriceMapper.toCryptoPrice(symbol, summary.getOldestTimestamp(), summary.getOldestPrice(),
+                summary.getScale(), summary.getOldestPriceScale());
+    }
+
+    private static CryptoPrice getNewestPrice(String symbol, PriceSummary summary) {
+        return CryptoPriceMapper.toCryptoPrice(symbol, summary.getNewestTimestamp(), summary.getNewestPrice(),
+                summary.getScale(), summary.getNewestPriceScale());
+    }
+
+    private PriceSummary getSummary(String symbol) throws ServiceException {
+        PriceSummary summary = getSymbolPrices(symbol).getSummary();
+        if (summary.isEmpty()) {
+            throw new ServiceException(ErrorCode.NO_SUCH_ELEMENT);
         }
+        return summary;
+    }
+
+    private SymbolPrices getSymbolPrices(String symbol) throws ServiceException {
+        return priceRepository.findBySymbol(symbol)
+                .orElseThrow(() -> new ServiceException(ErrorCode.CURRENCY_NOT_SUPPORTED_YET));
+    }
+
+    @RequiredArgsConstructor
+    private static class NormalizedRangeRanking {
+        private final long version;
+        private final Set<CryptoNormalizedRange> cryptos;
     }
 }
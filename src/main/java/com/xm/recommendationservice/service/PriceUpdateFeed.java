@@ -0,0 +1,123 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.domain.CryptoPriceRange;
+import com.xm.recommendationservice.domain.PriceUpdate;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.PriceSummary;
+import com.xm.recommendationservice.repository.PriceUpdateListener;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Turns repository updates into {@link PriceUpdate}s holding only what changed: the cryptos whose lowest or highest
+ * price moved and the normalized range ranking when its order changed. The changes are computed once per update,
+ * on the writer of the {@link InMemoryPriceRepository}, whatever the number of subscribers.
+ * <p>
+ * In a cluster only the cryptos owned by this node are reported, every update then carries the node in
+ * {@link PriceUpdate#getNode()} so that clients do not take it for all cryptos.
+ */
+@Component
+public class PriceUpdateFeed implements PriceUpdateListener {
+
+    private final int scale;
+    private final String node;
+    private final List<Consumer<PriceUpdate>> subscribers = new CopyOnWriteArrayList<>();
+    /**
+     * Current state by symbol, only used by the writer.
+     */
+    private final Map<String, CryptoPriceRange> ranges = new HashMap<>();
+    private final Map<String, CryptoNormalizedRange> normalizedRanges = new HashMap<>();
+    private List<String> rankingOrder = Collections.emptyList();
+    private volatile PriceUpdate snapshot;
+
+    public PriceUpdateFeed(InMemoryPriceRepository priceRepository, PriceProperties priceProperties) {
+        this.scale = priceProperties.getNormalizedRangeScale();
+        this.node = priceProperties.getClusterNodes().isEmpty() ? null : priceProperties.getClusterNode();
+        this.snapshot = new PriceUpdate(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                node);
+        priceRepository.addListener(this);
+    }
+
+    /**
+     * @return ranges of all cryptos and the full ranking, as of the last update
+     */
+    public PriceUpdate getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @param subscriber called with every update that changed something, from the thread updating the prices,
+     *                   so it must not block; the snapshot already includes the update then
+     */
+    public void subscribe(Consumer<PriceUpdate> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void onUpdate(Map<String, SymbolPrices> pricesBySymbol, Collection<SymbolPrices> saved,
+                         Collection<String> deleted) {
+        List<CryptoPriceRange> changedRanges = new ArrayList<>();
+        List<String> removedSymbols = new ArrayList<>();
+        for (SymbolPrices prices : saved) {
+            String symbol = prices.getSymbol();
+            PriceSummary summary = prices.getSummary();
+            if (summary.isEmpty()) {
+                remove(symbol, removedSymbols);
+                continue;
+            }
+            CryptoPriceRange range = new CryptoPriceRange(symbol,
+                    CryptoPriceMapper.toCryptoPrice(symbol, summary.getMinPriceTimestamp(), summary.getMinPrice(),
+                            summary.getScale(), summary.getMinPriceScale()),
+                    CryptoPriceMapper.toCryptoPrice(symbol, summary.getMaxPriceTimestamp(), summary.getMaxPrice(),
+                            summary.getScale(), summary.getMaxPriceScale()));
+            if (!range.equals(ranges.put(symbol, range))) {
+                changedRanges.add(range);
+            }
+            CryptoNormalizedRange normalizedRange = NormalizedRangeCalculator.calculate(symbol,
+                    summary.getMaxPrice(), summary.getMinPrice(), scale);
+            if (normalizedRange == null) {
+                normalizedRanges.remove(symbol);
+            } else {
+                normalizedRanges.put(symbol, normalizedRange);
+            }
+        }
+        for (String symbol : deleted) {
+            remove(symbol, removedSymbols);
+        }
+
+        List<CryptoNormalizedRange> ranking = new ArrayList<>(NormalizedRangeCalculator.rank(normalizedRanges.values()));
+        List<String> order = new ArrayList<>(ranking.size());
+        ranking.forEach(range -> order.add(range.getSymbol()));
+        boolean orderChanged = !order.equals(rankingOrder);
+        rankingOrder = order;
+        if (changedRanges.isEmpty() && removedSymbols.isEmpty() && !orderChanged) {
+            return;
+        }
+        List<CryptoPriceRange> allRanges = new ArrayList<>(ranges.values());
+        allRanges.sort(Comparator.comparing(CryptoPriceRange::getSymbol));
+        snapshot = new PriceUpdate(allRanges, Collections.emptyList(), ranking, node);
+        PriceUpdate update = new PriceUpdate(changedRanges, removedSymbols, orderChanged ? ranking : null, node);
+        for (Consumer<PriceUpdate> subscriber : subscribers) {
+            subscriber.accept(update);
+        }
+    }
+
+    private void remove(String symbol, List<String> removedSymbols) {
+        normalizedRanges.remove(symbol);
+        if (ranges.remove(symbol) != null) {
+            removedSymbols.add(symbol);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.PriceSummary;
+import com.xm.recommendationservice.repository.PriceUpdateListener;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Normalized range rankings of the {@link PriceProperties#getRollingWindows()}, each window ending at the newest
+ * price of all cryptos. They are updated by the writer of the {@link InMemoryPriceRepository} before the new prices
+ * are visible. Every window keeps its cryptos sorted by normalized range along with the oldest price of each crypto
+ * in it, so an update only ranks again the changed cryptos and those whose oldest prices left the window as it
+ * moved, each in constant time thanks to {@link SymbolPrices#getMinPrice(int, int)}. Cryptos whose prices all lie in
+ * the window are ranked from their {@link PriceSummary}, without reading their price columns. Only when the newest
+ * price moves back, as it was deleted or replaced, is every crypto ranked again.
+ * <p>
+ * Readers get a copy of the ranking, made by the first reader of the window after an update.
+ */
+@Component
+public class RollingNormalizedRangeRankings implements PriceUpdateListener {
+
+    private static final Comparator<Entry> BY_OLDEST_TIMESTAMP =
+            Comparator.comparingLong((Entry entry) -> entry.oldestTimestamp).thenComparing(entry -> entry.symbol);
+
+    private final int scale;
+    /**
+     * Changed by the writer and read by the readers copying a ranking, both holding the lock of this object.
+     */
+    private final Map<Duration, WindowRanking> windows = new LinkedHashMap<>();
+    /**
+     * Newest price by symbol, only used by the writer.
+     */
+    private final Map<String, Long> newestTimestamps = new HashMap<>();
+    private long newestTimestamp = Long.MIN_VALUE;
+    private long rankedCryptos;
+    private volatile Rankings rankings = new Rankings(Long.MIN_VALUE);
+
+    public RollingNormalizedRangeRankings(InMemoryPriceRepository priceRepository, PriceProperties priceProperties) {
+        this.scale = priceProperties.getNormalizedRangeScale();
+        for (Duration window : priceProperties.getRollingWindows()) {
+            windows.put(window, new WindowRanking(window));
+        }
+        priceRepository.addListener(this);
+    }
+
+    /**
+     * @return the ranking of the window in descending order of the normalized range, {@code null} if the window
+     * is not maintained
+     */
+    public Set<CryptoNormalizedRange> get(Duration window) {
+        Set<CryptoNormalizedRange> ranking = rankings.byWindow.get(window);
+        return ranking != null ? ranking : copy(window, null);
+    }
+
+    /**
+     * @return the ranking of the window if it is maintained and ends at {@code end}, {@code null} otherwise
+     */
+    public Set<CryptoNormalizedRange> get(Duration window, long end) {
+        Rankings current = rankings;
+        if (current.end != end) {
+            return null;
+        }
+        Set<CryptoNormalizedRange> ranking = current.byWindow.get(window);
+        return ranking != null ? ranking : copy(window, end);
+    }
+
+    @Override
+    public synchronized void onUpdate(Map<String, SymbolPrices> pricesBySymbol, Collection<SymbolPrices> saved,
+                                      Collection<String> deleted) {
+        long newest = updateNewestTimestamp(pricesBySymbol, saved, deleted);
+        Collection<SymbolPrices> changed = saved;
+        if (newest < newestTimestamp) {
+            // The windows moved back, so cryptos that did not change may have prices in them again
+            windows.values().forEach(WindowRanking::clear);
+            changed = pricesBySymbol.values();
+        }
+        newestTimestamp = newest;
+        for (WindowRanking window : windows.values()) {
+            deleted.forEach(window::remove);
+            for (SymbolPrices prices : changed) {
+                window.update(prices, newest);
+            }
+            window.expire(pricesBySymbol, newest);
+        }
+        rankings = new Rankings(newest);
+    }
+
+    /**
+     * @return number of times a crypto was ranked again in a window since the start
+     */
+    long getRankedCryptos() {
+        return rankedCryptos;
+    }
+
+    /**
+     * Copies the ranking of the window for the readers of the current rankings, once per update.
+     *
+     * @param end end of the window the reader expects, {@code null} for any
+     */
+    private synchronized Set<CryptoNormalizedRange> copy(Duration window, Long end) {
+        Rankings current = rankings;
+        WindowRanking windowRanking = windows.get(window);
+        if (windowRanking == null || end != null && current.end != end) {
+            return null;
+        }
+        return current.byWindow.computeIfAbsent(window, key -> windowRanking.copy());
+    }
+
+    /**
+     * Scans all cryptos only when a crypto holding the newest price was changed or deleted and no newer price
+     * came in.
+     */
+    private long updateNewestTimestamp(Map<String, SymbolPrices> pricesBySymbol, Collection<SymbolPrices> saved,
+                                       Collection<String> deleted) {
+        long newest = newestTimestamp;
+        boolean newestChanged = false;
+        for (String symbol : deleted) {
+            Long previous = newestTimestamps.remove(symbol);
+            newestChanged |= previous != null && previous == newestTimestamp;
+        }
+        for (SymbolPrices prices : saved) {
+            PriceSummary summary = prices.getSummary();
+            Long previous = summary.isEmpty() ? newestTimestamps.remove(prices.getSymbol())
+                    : newestTimestamps.put(prices.getSymbol(), summary.getNewestTimestamp());
+            newestChanged |= previous != null && previous == newestTimestamp;
+            if (!summary.isEmpty()) {
+                newest = Math.max(newest, summary.getNewestTimestamp());
+            }
+        }
+        return newestChanged && newest == newestTimestamp ? getNewestTimestamp(pricesBySymbol.values()) : newest;
+    }
+
+    /**
+     * @return normalized range of the prices of the window ending at {@code end}, the start excluded
+     */
+    static CryptoNormalizedRange calculate(SymbolPrices prices, Duration window, long end, int scale) {
+        return NormalizedRangeCalculator.calculateInPeriod(prices, end - window.toMillis() + 1, end + 1, scale);
+    }
+
+    /**
+     * @return epoch millis of the newest price of all cryptos, {@link Long#MIN_VALUE} when there are none
+     */
+    public static long getNewestTimestamp(Collection<SymbolPrices> allPrices) {
+        long newest = Long.MIN_VALUE;
+        for (SymbolPrices prices : allPrices) {
+            PriceSummary summary = prices.getSummary();
+            if (!summary.isEmpty()) {
+                newest = Math.max(newest, summary.getNewestTimestamp());
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Cryptos of a window sorted by normalized range and by the timestamp of their oldest price in the window.
+     * Cryptos without a normalized range, as their lowest price is not positive, are only in the latter.
+     */
+    private final class WindowRanking {
+
+        private final Duration window;
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final NavigableSet<CryptoNormalizedRange> ranking = new TreeSet<>(NormalizedRangeCalculator.DESCENDING);
+        private final NavigableSet<Entry> byOldestTimestamp = new TreeSet<>(BY_OLDEST_TIMESTAMP);
+
+        private WindowRanking(Duration window) {
+            this.window = window;
+        }
+
+        private void update(SymbolPrices prices, long end) {
+            rankedCryptos++;
+            String symbol = prices.getSymbol();
+            remove(symbol);
+            long from = end - window.toMillis() + 1;
+            PriceSummary summary = prices.getSummary();
+            if (summary.isEmpty() || summary.getNewestTimestamp() < from) {
+                return;
+            }
+            long oldestTimestamp = summary.getOldestTimestamp() >= from
+                    ? summary.getOldestTimestamp() : prices.getTimestamp(prices.lowerBound(from));
+            Entry entry = new Entry(symbol, oldestTimestamp, calculate(prices, window, end, scale));
+            entries.put(symbol, entry);
+            byOldestTimestamp.add(entry);
+            if (entry.range != null) {
+                ranking.add(entry.range);
+            }
+        }
+
+        /**
+         * Ranks again the cryptos whose oldest prices are no longer in the window ending at {@code end}.
+         */
+        private void expire(Map<String, SymbolPrices> pricesBySymbol, long end) {
+            long from = end - window.toMillis() + 1;
+            while (!byOldestTimestamp.isEmpty() && byOldestTimestamp.first().oldestTimestamp < from) {
+                update(pricesBySymbol.get(byOldestTimestamp.first().symbol), end);
+            }
+        }
+
+        private void remove(String symbol) {
+            Entry entry = entries.remove(symbol);
+            if (entry != null) {
+                byOldestTimestamp.remove(entry);
+                if (entry.range != null) {
+                    ranking.remove(entry.range);
+                }
+            }
+        }
+
+        private void clear() {
+            entries.clear();
+            ranking.clear();
+            byOldestTimestamp.clear();
+        }
+
+        private Set<CryptoNormalizedRange> copy() {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(ranking));
+        }
+    }
+
+    private static final class Entry {
+
+        private final String symbol;
+        private final long oldestTimestamp;
+        private final CryptoNormalizedRange range;
+
+        private Entry(String symbol, long oldestTimestamp, CryptoNormalizedRange range) {
+            this.symbol = symbol;
+            this.oldestTimestamp = oldestTimestamp;
+            this.range = range;
+        }
+    }
+
+    private static final class Rankings {
+
+        private final long end;
+        /**
+         * Copies of the rankings as of {@link #end}, made when first read.
+         */
+        private final Map<Duration, Set<CryptoNormalizedRange>> byWindow = new ConcurrentHashMap<>();
+
+        private Rankings(long end) {
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Runs the per-symbol part of the cross-symbol endpoints. Above
+ * {@link PriceProperties#getParallelAggregationThreshold()} symbols the work is split into chunks on a dedicated
+ * fork-join pool of {@link PriceProperties#getAggregationParallelism()} threads, so the request thread only waits
+ * and the pool never takes more cores than configured, whatever the number of concurrent requests.
+ */
+@Component
+@Slf4j
+public class SymbolAggregator implements DisposableBean {
+
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int threshold;
+
+    public SymbolAggregator(PriceProperties priceProperties) {
+        this.parallelism = priceProperties.getAggregationParallelism();
+        this.threshold = priceProperties.getParallelAggregationThreshold();
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism, SymbolAggregator::newThread, null, false) : null;
+        log.info("Aggregating prices of many symbols with {} threads", parallelism);
+    }
+
+    /**
+     * @param mapper called once per symbol, possibly from several threads; symbols mapped to {@code null} are left out
+     * @return the results in the iteration order of {@code allPrices}
+     */
+    public <R> List<R> map(Collection<SymbolPrices> allPrices, Function<SymbolPrices, R> mapper) {
+        SymbolPrices[] prices = allPrices.toArray(new SymbolPrices[0]);
+        if (pool == null || prices.length < threshold) {
+            return mapRange(prices, 0, prices.length, mapper);
+        }
+        int chunkSize = Math.max(1, prices.length / (parallelism * CHUNKS_PER_THREAD));
+        return pool.invoke(new MapTask<>(prices, 0, prices.length, chunkSize, mapper));
+    }
+
+    @Override
+    public void destroy() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private static <R> List<R> mapRange(SymbolPrices[] prices, int from, int to, Function<SymbolPrices, R> mapper) {
+        List<R> results = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            R result = mapper.apply(prices[i]);
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private static ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("price-aggregation-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    private static final class MapTask<R> extends RecursiveTask<List<R>> {
+
+        private final SymbolPrices[] prices;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final Function<SymbolPrices, R> mapper;
+
+        private MapTask(SymbolPrices[] prices, int from, int to, int chunkSize, Function<SymbolPrices, R> mapper) {
+            this.prices = prices;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected List<R> compute() {
+            if (to - from <= chunkSize) {
+                return mapRange(prices, from, to, mapper);
+            }
+            int middle = (from + to) >>> 1;
+            MapTask<R> right = new MapTask<>(prices, middle, to, chunkSize, mapper);
+            right.fork();
+            List<R> results = new MapTask<>(prices, from, middle, chunkSize, mapper).compute();
+            results.addAll(right.join());
+            return results;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.constants.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpShardClientTest {
+
+    private static final String NODE = "http://node-0:8081/recommendation-service";
+
+    @Test
+    void testForwardUriEncodesPath() {
+        assertEquals(URI.create(NODE + "/internal/forward/prices/BTC%20%C3%BC%25/minPrice"),
+                HttpShardClient.getForwardUri(NODE, "/prices/BTC \u00fc%/minPrice", null));
+    }
+
+    @Test
+    void testForwardUriKeepsEncodedQuery() {
+        assertEquals(URI.create(NODE + "/internal/forward/prices/BTC/allPrices?cursor=a%2Bb%26c&limit=10"),
+                HttpShardClient.getForwardUri(NODE, "/prices/BTC/allPrices", "cursor=a%2Bb%26c&limit=10"));
+    }
+
+    @Test
+    void testForwardUriEncodesInvalidQuery() {
+        assertEquals(URI.create(NODE + "/internal/forward/prices/BTC/allPrices?cursor=50%25%20%7C"),
+                HttpShardClient.getForwardUri(NODE, "/prices/BTC/allPrices", "cursor=50% |"));
+    }
+
+    @Test
+    void testUnknownErrorCodeIsShardUnavailable() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(ShardController.ERROR_CODE_HEADER, "ADDED_IN_A_LATER_VERSION");
+        HttpServerErrorException exception = HttpServerErrorException.create(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Internal Server Error", headers, new byte[0], StandardCharsets.UTF_8);
+
+        assertEquals(ErrorCode.SHARD_UNAVAILABLE, HttpShardClient.toServiceException(exception).getErrorCode());
+        headers.set(ShardController.ERROR_CODE_HEADER, ErrorCode.INVALID_PERIOD.name());
+        assertEquals(ErrorCode.INVALID_PERIOD, HttpShardClient.toServiceException(exception).getErrorCode());
+    }
+
+    @Test
+    void testUnreachableNodeIsServiceUnavailable() throws IOException {
+        HttpShardClient shardClient = new HttpShardClient(new RestTemplateBuilder(), new PriceProperties());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        shardClient.forward("http://localhost:1", "/prices/BTC/minPrice",
+                new MockHttpServletRequest("GET", "/prices/BTC/minPrice"), response);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+    }
+}
@@ -0,0 +1,309 @@
+package com.xm.recommendationservice.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giffing.bucket4j.spring.boot.starter.context.properties.BandWidth;
+import com.giffing.bucket4j.spring.boot.starter.context.properties.Bucket4JBootProperties;
+import com.giffing.bucket4j.spring.boot.starter.context.properties.Bucket4JConfiguration;
+import com.giffing.bucket4j.spring.boot.starter.context.properties.RateLimit;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.constants.ErrorCode;
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.domain.CryptoStats;
+import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.ingestion.IngestionMetrics;
+import com.xm.recommendationservice.ingestion.PriceIngestionService;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.service.NormalizedRangeQuery;
+import com.xm.recommendationservice.service.PriceService;
+import com.xm.recommendationservice.service.RollingNormalizedRangeRankings;
+import com.xm.recommendationservice.service.SymbolAggregator;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.grid.ProxyManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Three nodes in one process, calling each other through an in-process {@link ShardClient} that sends every answer
+ * through JSON as the HTTP client would. The cluster must answer as a single node holding all
+ * the prices.
+ */
+class PriceClusterTest {
+
+    private static final List<String> SYMBOLS = List.of("ADA", "BTC", "DOGE", "DOT", "ETH", "LTC", "SOL", "XRP");
+    private static final List<String> NODES = List.of("http://node-0", "http://node-1", "http://node-2");
+    private static final LocalDateTime START = LocalDateTime.parse("2022-01-01T00:00:00");
+    private static final String BUCKETS = "buckets";
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final List<CacheManager> cacheManagers = new ArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    private PriceService singleNode;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < SYMBOLS.size(); i++) {
+            StringBuilder rows = new StringBuilder("timestamp,symbol,price\n");
+            for (int hour = 0; hour < 72; hour++) {
+                long price = 100 + (long) (i + 1) * ((hour * 7L + i) % 13);
+                rows.append(START.plusHours(hour).toInstant(ZoneOffset.UTC).toEpochMilli())
+                        .append(',').append(SYMBOLS.get(i)).append(',').append(price).append('\n');
+            }
+            Files.writeString(directory.resolve(SYMBOLS.get(i) + PriceIngestionService.FILE_SUFFIX), rows);
+        }
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setDirectory(directory.toString());
+        InMemoryPriceRepository priceRepository = new InMemoryPriceRepository();
+        new PriceIngestionService(priceRepository, priceProperties,
+                new IngestionMetrics(new SimpleMeterRegistry(), priceRepository), new ShardRouter(priceProperties))
+                .load();
+        singleNode = new PriceService(priceRepository, priceProperties, new SymbolAggregator(priceProperties),
+                new RollingNormalizedRangeRankings(priceRepository, priceProperties),
+                PriceCluster.singleNode(priceRepository));
+        for (String node : NODES) {
+            nodes.put(node, new Node(node));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.values().forEach(node -> node.priceCluster.destroy());
+        cacheManagers.forEach(CacheManager::close);
+    }
+
+    @Test
+    void testSymbolsSplitOk() {
+        int total = 0;
+        for (Node node : nodes.values()) {
+            int owned = node.priceRepository.findAll().size();
+            assertTrue(owned < SYMBOLS.size());
+            total += owned;
+        }
+        assertEquals(SYMBOLS.size(), total);
+    }
+
+    @Test
+    void testNormalizedRangesOk() throws ServiceException {
+        for (Node node : nodes.values()) {
+            PriceService priceService = node.priceService;
+            assertEquals(new ArrayList<>(singleNode.getAllCryptosWithNormalizedRange()),
+                    new ArrayList<>(priceService.getAllCryptosWithNormalizedRange()));
+            assertEquals(new ArrayList<>(singleNode.getCryptosWithNormalizedRangeInPeriod(
+                            LocalDate.parse("2022-01-02"), LocalDate.parse("2022-01-03"))),
+                    new ArrayList<>(priceService.getCryptosWithNormalizedRangeInPeriod(
+                            LocalDate.parse("2022-01-02"), LocalDate.parse("2022-01-03"))));
+            assertEquals(singleNode.getCryptoWithHighestNormalizedRangeByDate(LocalDate.parse("2022-01-02")),
+                    priceService.getCryptoWithHighestNormalizedRangeByDate(LocalDate.parse("2022-01-02")));
+            assertEquals(new ArrayList<>(singleNode.getCryptosWithNormalizedRangeBetween(START.plusHours(5),
+                            START.plusHours(9))),
+                    new ArrayList<>(priceService.getCryptosWithNormalizedRangeBetween(START.plusHours(5),
+                            START.plusHours(9))));
+            assertEquals(new ArrayList<>(singleNode.getCryptosWithNormalizedRangeInRollingWindow("24h")),
+                    new ArrayList<>(priceService.getCryptosWithNormalizedRangeInRollingWindow("24h")));
+            assertEquals(new ArrayList<>(singleNode.getCryptosWithNormalizedRangeInRollingWindow("5h")),
+                    new ArrayList<>(priceService.getCryptosWithNormalizedRangeInRollingWindow("5h")));
+        }
+    }
+
+    @Test
+    void testStatsOk() throws ServiceException {
+        List<String> symbols = List.of("XRP", "ADA", "BTC", "ADA", "SOL");
+        PriceService priceService = nodes.get(NODES.get(1)).priceService;
+        assertEquals(singleNode.getStats(symbols, List.of()), priceService.getStats(symbols, List.of()));
+        assertEquals(singleNode.getStats(symbols, List.of("maxPrice")),
+                priceService.getStats(symbols, List.of("maxPrice")));
+        assertThrows(ServiceException.class, () -> priceService.getStats(List.of("BTC", "NEW"), List.of()));
+    }
+
+    @Test
+    void testRemoteUpdateChangesVersion() throws IOException, ServiceException {
+        Node first = nodes.get(NODES.get(0));
+        first.priceCluster.pollStatuses();
+        long version = first.priceCluster.getVersion();
+        first.priceCluster.pollStatuses();
+        assertEquals(version, first.priceCluster.getVersion());
+
+        String symbol = SYMBOLS.stream().filter(candidate -> !first.priceCluster.getRouter().owns(candidate))
+                .findFirst().orElseThrow();
+        Node owner = nodes.get(first.priceCluster.getRouter().getOwner(symbol));
+        Path file = directory.resolve(symbol + PriceIngestionService.FILE_SUFFIX);
+        long timestamp = START.plusHours(80).toInstant(ZoneOffset.UTC).toEpochMilli();
+        Files.writeString(file, timestamp + "," + symbol + ",1000\n", StandardOpenOption.APPEND);
+        owner.priceIngestionService.refresh(List.of(file));
+
+        first.priceCluster.pollStatuses();
+        assertNotEquals(version, first.priceCluster.getVersion());
+        assertEquals(timestamp, first.priceCluster.getNewestTimestamp());
+        assertEquals(symbol, first.priceService.getCryptosWithNormalizedRangeInRollingWindow("1h").iterator().next()
+                .getSymbol());
+    }
+
+    @Test
+    void testRateLimitSharedOk() {
+        BucketConfiguration configuration = Bucket4j.configurationBuilder()
+                .addLimit(Bandwidth.simple(3, Duration.ofHours(1)))
+                .build();
+        List<ProxyManager<String>> proxyManagers = new ArrayList<>();
+        for (String node : NODES) {
+            proxyManagers.add(nodes.get(node).clusterRateLimits.resolve(BUCKETS));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(proxyManagers.get(i).getProxy("client", () -> configuration).tryConsume(1));
+        }
+        for (ProxyManager<String> proxyManager : proxyManagers) {
+            assertFalse(proxyManager.getProxy("client", () -> configuration).tryConsume(1));
+        }
+        assertTrue(proxyManagers.get(0).getProxy("other client", () -> configuration).tryConsume(1));
+    }
+
+    @Test
+    void testRateLimitSharedAsyncOk() {
+        BucketConfiguration configuration = Bucket4j.configurationBuilder()
+                .addLimit(Bandwidth.simple(3, Duration.ofHours(1)))
+                .build();
+        for (int i = 0; i < 4; i++) {
+            Bucket bucket = nodes.get(NODES.get(i % NODES.size())).clusterRateLimits.resolve(BUCKETS)
+                    .getProxy("client", () -> configuration);
+            ConsumptionProbe probe = bucket.asAsync().tryConsumeAndReturnRemaining(1).join();
+            assertEquals(i < 3, probe.isConsumed());
+            assertEquals(Math.max(2 - i, 0), probe.getRemainingTokens());
+        }
+    }
+
+    @Test
+    void testUnknownRateLimitLimitedLocally() throws ServiceException {
+        BucketConfiguration configuration = Bucket4j.configurationBuilder()
+                .addLimit(Bandwidth.simple(5, Duration.ofHours(1)))
+                .build();
+        Node node = nodes.get(NODES.get(0));
+        String key = IntStream.range(0, 100).mapToObj(i -> "client " + i)
+                .filter(candidate -> !node.priceCluster.getRouter().isSelf(
+                        node.priceCluster.getRouter().getOwner(candidate)))
+                .findFirst().orElseThrow();
+        Node owner = nodes.get(node.priceCluster.getRouter().getOwner(key));
+        RateLimitRequest request = new RateLimitRequest(BUCKETS, key, 1, RateLimitRequest.Limit.of(configuration));
+
+        ServiceException exception = assertThrows(ServiceException.class,
+                () -> owner.clusterRateLimits.consumeLocally(request));
+        assertEquals(ErrorCode.UNKNOWN_RATE_LIMIT, exception.getErrorCode());
+        Bucket bucket = node.clusterRateLimits.resolve(BUCKETS).getProxy(key, () -> configuration);
+        assertTrue(bucket.tryConsume(1));
+        assertEquals(4, bucket.getAvailableTokens());
+    }
+
+    private final class Node {
+
+        private final InMemoryPriceRepository priceRepository = new InMemoryPriceRepository();
+        private final PriceIngestionService priceIngestionService;
+        private final PriceCluster priceCluster;
+        private final PriceService priceService;
+        private final ClusterRateLimits clusterRateLimits;
+
+        private Node(String name) {
+            PriceProperties priceProperties = new PriceProperties();
+            priceProperties.setDirectory(directory.toString());
+            priceProperties.setClusterNodes(NODES);
+            priceProperties.setClusterNode(name);
+            priceProperties.setClusterSecret("secret");
+            priceProperties.setClusterPollInterval(Duration.ofHours(1));
+            ShardRouter router = new ShardRouter(priceProperties);
+            priceIngestionService = new PriceIngestionService(priceRepository, priceProperties,
+                    new IngestionMetrics(new SimpleMeterRegistry(), priceRepository), router);
+            priceIngestionService.load();
+            priceCluster = new PriceCluster(priceRepository, priceProperties, router, new InProcessShardClient());
+            priceService = new PriceService(priceRepository, priceProperties, new SymbolAggregator(priceProperties),
+                    new RollingNormalizedRangeRankings(priceRepository, priceProperties), priceCluster);
+            CacheManager cacheManager = Caching.getCachingProvider()
+                    .getCacheManager(URI.create(name), getClass().getClassLoader());
+            cacheManager.createCache(BUCKETS, new MutableConfiguration<>());
+            cacheManagers.add(cacheManager);
+            clusterRateLimits = new ClusterRateLimits(cacheManager, priceCluster, createBucket4jProperties());
+        }
+    }
+
+    /**
+     * A filter limiting {@link #BUCKETS} to 3 requests an hour.
+     */
+    private static Bucket4JBootProperties createBucket4jProperties() {
+        BandWidth bandWidth = new BandWidth();
+        bandWidth.setCapacity(3);
+        bandWidth.setTime(1);
+        bandWidth.setUnit(ChronoUnit.HOURS);
+        RateLimit rateLimit = new RateLimit();
+        rateLimit.setBandwidths(List.of(bandWidth));
+        Bucket4JConfiguration filter = new Bucket4JConfiguration();
+        filter.setCacheName(BUCKETS);
+        filter.setRateLimits(List.of(rateLimit));
+        Bucket4JBootProperties bucket4jProperties = new Bucket4JBootProperties();
+        bucket4jProperties.setFilters(List.of(filter));
+        return bucket4jProperties;
+    }
+
+    private final class InProcessShardClient implements ShardClient {
+
+        @Override
+        public ShardStatus getStatus(String node) {
+            return objectMapper.convertValue(nodes.get(node).priceCluster.getLocalStatus(), ShardStatus.class);
+        }
+
+        @Override
+        public List<CryptoNormalizedRange> getNormalizedRanges(String node, NormalizedRangeQuery query) {
+            NormalizedRangeQuery sent = objectMapper.convertValue(query, NormalizedRangeQuery.class);
+            return List.of(objectMapper.convertValue(nodes.get(node).priceService.getLocalNormalizedRanges(sent),
+                    CryptoNormalizedRange[].class));
+        }
+
+        @Override
+        public List<CryptoStats> getStats(String node, Collection<String> symbols, Collection<String> statistics)
+                throws ServiceException {
+            return List.of(objectMapper.convertValue(nodes.get(node).priceService.getLocalStats(symbols, statistics),
+                    CryptoStats[].class));
+        }
+
+        @Override
+        public RateLimitResult consumeRateLimitTokens(String node, RateLimitRequest request)
+                throws ServiceException {
+            RateLimitRequest sent = objectMapper.convertValue(request, RateLimitRequest.class);
+            return objectMapper.convertValue(nodes.get(node).clusterRateLimits.consumeLocally(sent),
+                    RateLimitResult.class);
+        }
+    }
+}
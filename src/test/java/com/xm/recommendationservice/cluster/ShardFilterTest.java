@@ -0,0 +1,95 @@
+package com.xm.recommendationservice.cluster;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.repository.PriceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class ShardFilterTest {
+
+    private static final int PUBLIC_PORT = 8080;
+    private static final int CLUSTER_PORT = 8081;
+
+    private PriceCluster priceCluster;
+    private ShardFilter shardFilter;
+
+    @BeforeEach
+    void setUp() {
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setClusterNodes(List.of("http://node-0:8081"));
+        priceProperties.setClusterNode("http://node-0:8081");
+        priceProperties.setClusterSecret("secret");
+        priceCluster = new PriceCluster(mock(PriceRepository.class), priceProperties, new ShardRouter(priceProperties),
+                new HttpShardClient(new RestTemplateBuilder(), priceProperties));
+        shardFilter = new ShardFilter(priceCluster, new HttpShardClient(new RestTemplateBuilder(), priceProperties),
+                priceProperties, () -> "");
+    }
+
+    @AfterEach
+    void tearDown() {
+        priceCluster.destroy();
+    }
+
+    @Test
+    void testPublicPortServesPublicPaths() throws ServletException, IOException {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = filter(PUBLIC_PORT, "/prices/BTC/minPrice", chain);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testPublicPortRejectsInternalPaths() throws ServletException, IOException {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = filter(PUBLIC_PORT, "/internal/status", chain);
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void testClusterPortServesInternalPaths() throws ServletException, IOException {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = filter(CLUSTER_PORT, "/internal/status", chain);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testClusterPortRejectsPublicPaths() throws ServletException, IOException {
+        for (String path : List.of("/prices/BTC/minPrice", "/prices/normalized-range", "/actuator/health")) {
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletResponse response = filter(CLUSTER_PORT, path, chain);
+
+            assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus(), path);
+            assertNull(chain.getRequest(), path);
+        }
+    }
+
+    private MockHttpServletResponse filter(int port, String path, MockFilterChain chain)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setLocalPort(port);
+        request.addHeader(ShardController.SECRET_HEADER, "secret");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        shardFilter.doFilter(request, response, chain);
+        return response;
+    }
+}
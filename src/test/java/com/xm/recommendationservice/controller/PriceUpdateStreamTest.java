@@ -0,0 +1,112 @@
+package com.xm.recommendationservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import com.xm.recommendationservice.service.PriceUpdateFeed;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceUpdateStreamTest {
+
+    private final CountDownLatch clientReads = new CountDownLatch(1);
+    private InMemoryPriceRepository priceRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private PriceUpdateStream priceUpdateStream;
+
+    @BeforeEach
+    void setUp() {
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setUpdatesSenderThreads(1);
+        priceProperties.setUpdatesSendTimeout(Duration.ofMillis(100));
+        priceRepository = new InMemoryPriceRepository();
+        priceRepository.update(List.of(new SymbolPricesBuilder("BTC").add(1000, 1, 0).build()),
+                Collections.emptyList());
+        meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        priceUpdateStream = new PriceUpdateStream(new PriceUpdateFeed(priceRepository, priceProperties),
+                priceProperties, objectMapper, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clientReads.countDown();
+        priceUpdateStream.destroy();
+    }
+
+    @Test
+    void testClientThatNeverReadsIsDropped() throws Exception {
+        NotReadingEmitter notReading = new NotReadingEmitter();
+        RecordingEmitter reading = new RecordingEmitter();
+        priceUpdateStream.subscribe(notReading);
+        priceUpdateStream.subscribe(reading);
+
+        assertTrue(reading.awaitEvent().contains(PriceUpdateStream.SNAPSHOT_EVENT));
+        priceRepository.update(List.of(new SymbolPricesBuilder("ETH").add(1000, 1, 0).add(2000, 3, 0).build()),
+                Collections.emptyList());
+        assertTrue(reading.awaitEvent().contains(PriceUpdateStream.UPDATE_EVENT));
+
+        assertEquals(1, meterRegistry.get("prices.updates.stalls").counter().count());
+        assertEquals(1, meterRegistry.get("prices.updates.subscribers").gauge().value());
+        clientReads.countDown();
+        assertTrue(notReading.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Blocks in every send like a write to a client whose receive buffer is full.
+     */
+    private final class NotReadingEmitter extends SseEmitter {
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                clientReads.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException(exception);
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            super.complete();
+            completed.countDown();
+        }
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(data -> event.append(data.getData()));
+            events.add(event.toString());
+        }
+
+        private String awaitEvent() throws InterruptedException {
+            String event = events.poll(5, TimeUnit.SECONDS);
+            return event == null ? "" : event;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.xm.recommendationservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xm.recommendationservice.cluster.PriceCluster;
+import com.xm.recommendationservice.cluster.ShardRouter;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.constants.ErrorCode;
+import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.handler.GlobalControllerExceptionHandler;
+import com.xm.recommendationservice.ingestion.IngestionMetrics;
+import com.xm.recommendationservice.ingestion.PriceIngestionService;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import com.xm.recommendationservice.service.PriceService;
+import com.xm.recommendationservice.service.PriceUpdateFeed;
+import com.xm.recommendationservice.service.RollingNormalizedRangeRankings;
+import com.xm.recommendationservice.service.SymbolAggregator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PricesControllerTest {
+
+    private InMemoryPriceRepository priceRepository;
+    private PriceService priceService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        PriceProperties priceProperties = new PriceProperties();
+        priceRepository = new InMemoryPriceRepository();
+        new PriceIngestionService(priceRepository, priceProperties,
+                new IngestionMetrics(new SimpleMeterRegistry(), priceRepository), new ShardRouter(priceProperties))
+                .load();
+        PriceCluster priceCluster = PriceCluster.singleNode(priceRepository);
+        priceService = spy(new PriceService(priceRepository, priceProperties, new SymbolAggregator(priceProperties),
+                new RollingNormalizedRangeRankings(priceRepository, priceProperties), priceCluster));
+        priceProperties.setGzipResponses(true);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        CryptoPriceStreamWriter cryptoPriceStreamWriter = new CryptoPriceStreamWriter(objectMapper);
+        PricesController pricesController = new PricesController(priceService, cryptoPriceStreamWriter,
+                new PriceResponseCache(priceCluster, priceProperties, objectMapper, cryptoPriceStreamWriter,
+                        new SimpleMeterRegistry()),
+                new PriceUpdateStream(new PriceUpdateFeed(priceRepository, priceProperties), priceProperties,
+                        objectMapper, new SimpleMeterRegistry()));
+        mockMvc = MockMvcBuilders.standaloneSetup(pricesController)
+                .setControllerAdvice(new GlobalControllerExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testCachedResultOk() throws Exception {
+        mockMvc.perform(get("/prices/normalizedRangeCryptos"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].symbol").value("BTC"))
+                .andExpect(jsonPath("$[0].normalizedRange").value(0.0071));
+        mockMvc.perform(get("/prices/normalizedRangeCryptos"))
+                .andExpect(status().isOk());
+
+        verify(priceService, times(1)).getAllCryptosWithNormalizedRange();
+    }
+
+    @Test
+    void testGzipOk() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            priceRepository.update(Collections.singletonList(
+                    new SymbolPricesBuilder("S" + i).add(1000, 1, 0).add(2000, 2, 0).build()), Collections.emptyList());
+        }
+        byte[] json = mockMvc.perform(get("/prices/normalizedRangeCryptos"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] gzip = mockMvc.perform(get("/prices/normalizedRangeCryptos").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertArrayEquals(json, inputStream.readAllBytes());
+        }
+        verify(priceService, times(1)).getAllCryptosWithNormalizedRange();
+    }
+
+    @Test
+    void testNotModifiedOk() throws Exception {
+        String eTag = mockMvc.perform(get("/prices/BTC/maxPrice"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/prices/BTC/maxPrice").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/prices/BTC/maxPrice").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/prices/BTC/minPrice").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        verify(priceService, times(1)).getMaxPrice("BTC");
+
+        priceRepository.update(Collections.emptyList(), Collections.singletonList("ETH"));
+        mockMvc.perform(get("/prices/BTC/maxPrice").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        priceRepository.update(Collections.singletonList(new SymbolPricesBuilder("BTC").add(1000, 1, 0).build()),
+                Collections.emptyList());
+        String newETag = mockMvc.perform(get("/prices/BTC/maxPrice").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, newETag);
+    }
+
+    @Test
+    void testPageNotModifiedOk() throws Exception {
+        String eTag = mockMvc.perform(get("/prices/BTC/allPrices").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/prices/BTC/allPrices").param("limit", "2").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        verify(priceService, times(1)).getAllPrices("BTC", null, 2);
+
+        priceRepository.update(Collections.emptyList(), Collections.singletonList("ETH"));
+        mockMvc.perform(get("/prices/BTC/allPrices").param("limit", "2").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/prices/BTC/allPrices").param("limit", "1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testGzipQualityIsHonoured() {
+        assertTrue(PriceResponseCache.acceptsGzip("gzip"));
+        assertTrue(PriceResponseCache.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(PriceResponseCache.acceptsGzip("*"));
+        assertFalse(PriceResponseCache.acceptsGzip(null));
+        assertFalse(PriceResponseCache.acceptsGzip("deflate"));
+        assertFalse(PriceResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(PriceResponseCache.acceptsGzip("gzip; q=0.0, deflate"));
+        assertFalse(PriceResponseCache.acceptsGzip("*, gzip;q=0"));
+        assertFalse(PriceResponseCache.acceptsGzip("x-gzip"));
+    }
+
+    @Test
+    void testUnknownSymbolIsNeverNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/prices/BTC/minPrice"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/prices/DOGE/minPrice").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isInternalServerError())
+                .andExpect(content().string(ErrorCode.CURRENCY_NOT_SUPPORTED_YET.message));
+        mockMvc.perform(get("/prices/DOGE/allPrices").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isInternalServerError());
+        mockMvc.perform(get("/prices/BTC/allPrices").param("limit", "0").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testInvalidPageRequestIsBadRequest() throws Exception {
+        mockMvc.perform(get("/prices/BTC/allPrices").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/prices/BTC/allPrices").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testInvalidPeriodIsBadRequest() throws Exception {
+        mockMvc.perform(get("/prices/normalizedRangeCryptosBetween")
+                        .param("fromTime", "2022-01-02T00:00:00").param("toTime", "2022-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/prices/normalizedRangeCryptosRolling").param("window", "yesterday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testInvalidResolutionIsBadRequest() throws Exception {
+        mockMvc.perform(get("/prices/BTC/candles").param("resolution", "1m"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/prices/BTC/candles").param("resolution", "1d"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testShardUnavailableIsServiceUnavailable() throws Exception {
+        doThrow(new ServiceException(ErrorCode.SHARD_UNAVAILABLE)).when(priceService)
+                .getAllCryptosWithNormalizedRange();
+
+        mockMvc.perform(get("/prices/normalizedRangeCryptos"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().string(ErrorCode.SHARD_UNAVAILABLE.message));
+    }
+
+    @Test
+    void testStatsOk() throws Exception {
+        mockMvc.perform(get("/prices/stats").param("symbols", "BTC").param("stats", "minPrice,newestMonthPrice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].symbol").value("BTC"))
+                .andExpect(jsonPath("$[0].minPrice.priceValue").value(46813.21))
+                .andExpect(jsonPath("$[0].newestMonthPrice.priceValue").value(47143.98))
+                .andExpect(jsonPath("$[0].maxPrice").doesNotExist());
+        mockMvc.perform(get("/prices/stats").param("symbols", "BTC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].maxPrice.priceValue").value(47143.98));
+        mockMvc.perform(get("/prices/stats").param("symbols", "BTC").param("stats", "averagePrice"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testUpdatesOk() throws Exception {
+        MvcResult result = mockMvc.perform(get("/prices/updates"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        priceRepository.update(List.of(new SymbolPricesBuilder("ETH").add(1000, 1, 0).add(2000, 3, 0).build()),
+                Collections.emptyList());
+
+        String events = awaitContent(result.getResponse(), "event:update");
+        assertTrue(events.startsWith("event:snapshot\ndata:{\"ranges\":[{\"symbol\":\"BTC\""));
+        assertTrue(events.contains("event:update\ndata:{\"ranges\":[{\"symbol\":\"ETH\""));
+        assertTrue(events.contains("\"ranking\":[{\"symbol\":\"ETH\",\"normalizedRange\":2.0000}"));
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return response.getContentAsString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.xm.recommendationservice.repository.SymbolPrices;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvPriceParserTest {
+
+    private static final String BTC = "BTC";
+
+    @Test
+    void testParseOk() throws IOException {
+        String content = "price,\"symbol\",timestamp\r\n\"46813.21\",BTC,1641009600000\r\n\n-0.5, BTC ,\"1641020400000\"";
+        SymbolPricesBuilder builder = new SymbolPricesBuilder(BTC);
+
+        int consumed = new CsvPriceParser(BTC).parse(toBuffer(content), builder, true);
+        SymbolPrices prices = builder.build();
+        assertEquals(content.length(), consumed);
+        assertEquals(2, prices.size());
+        assertEquals(1641009600000L, prices.getTimestamp(0));
+        assertEquals(new BigDecimal("46813.21"), prices.getPriceValue(0));
+        assertEquals(new BigDecimal("-0.5"), prices.getPriceValue(1));
+    }
+
+    @Test
+    void testMixedCaseHeaderOk() throws IOException {
+        String content = "\uFEFFTimestamp,Symbol,PRICE\n1641009600000,BTC,46813.21\n";
+        SymbolPricesBuilder builder = new SymbolPricesBuilder(BTC);
+
+        new CsvPriceParser(BTC).parse(toBuffer(content), builder, true);
+        SymbolPrices prices = builder.build();
+        assertEquals(1, prices.size());
+        assertEquals(1641009600000L, prices.getTimestamp(0));
+        assertEquals(new BigDecimal("46813.21"), prices.getPriceValue(0));
+    }
+
+    @Test
+    void testMalformedRowsSkipped() throws IOException {
+        String content = "timestamp,symbol,price\n1641009600000,BTC,1.2.3\nnow,BTC,1\n1641009600000,BTC\n"
+                + "1641020400000,BTC,99999999999999999999\n1641031200000,BTC,7\n";
+        SymbolPricesBuilder builder = new SymbolPricesBuilder(BTC);
+
+        new CsvPriceParser(BTC).parse(toBuffer(content), builder, true);
+        SymbolPrices prices = builder.build();
+        assertEquals(1, prices.size());
+        assertEquals(1641031200000L, prices.getTimestamp(0));
+    }
+
+    @Test
+    void testOverPreciseRowKeepsEarlierPrices() throws IOException {
+        String content = "timestamp,symbol,price\n1641009600000,BTC,1.5\n1641020400000,BTC,922337203685477\n"
+                + "1641031200000,BTC,0.00001\n1641042000000,BTC,2\n";
+        SymbolPricesBuilder builder = new SymbolPricesBuilder(BTC);
+
+        CsvPriceParser parser = new CsvPriceParser(BTC);
+        parser.parse(toBuffer(content), builder, true);
+        SymbolPrices prices = builder.build();
+        assertEquals(1, parser.getMalformedRows());
+        assertEquals(3, prices.size());
+        assertEquals(new BigDecimal("1.5"), prices.getPriceValue(0));
+        assertEquals(new BigDecimal("922337203685477"), prices.getPriceValue(1));
+        assertEquals(new BigDecimal("2"), prices.getPriceValue(2));
+        assertEquals(1, prices.getScale());
+        assertEquals(15, prices.getSummary().getMinPrice());
+    }
+
+    @Test
+    void testIncompleteLineNotConsumed() throws IOException {
+        String complete = "timestamp,symbol,price\n1641009600000,BTC,1\n";
+        SymbolPricesBuilder builder = new SymbolPricesBuilder(BTC);
+
+        int consumed = new CsvPriceParser(BTC).parse(toBuffer(complete + "1641020400000,BT"), builder, false);
+        assertEquals(complete.length(), consumed);
+        assertEquals(1, builder.build().size());
+    }
+
+    @Test
+    void testMissingColumnException() {
+        assertThrows(IOException.class, () -> new CsvPriceParser(BTC)
+                .parse(toBuffer("time,symbol,price\n1,BTC,1\n"), new SymbolPricesBuilder(BTC), true));
+    }
+
+    private static ByteBuffer toBuffer(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
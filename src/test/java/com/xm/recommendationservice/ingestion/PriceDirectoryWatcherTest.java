@@ -0,0 +1,46 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceDirectoryWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWatcherSurvivesFailedRefresh() throws IOException {
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setDirectory(directory.toString());
+        PriceIngestionService priceIngestionService = mock(PriceIngestionService.class);
+        when(priceIngestionService.getDirectory()).thenReturn(directory);
+        Path btc = directory.resolve("BTC_values.csv");
+        Path eth = directory.resolve("ETH_values.csv");
+        doThrow(new IllegalStateException("Failed refresh"))
+                .when(priceIngestionService).refresh(argThat(files -> files.contains(btc)));
+        PriceDirectoryWatcher watcher = new PriceDirectoryWatcher(priceIngestionService, priceProperties);
+        watcher.start();
+        try {
+            Files.writeString(btc, "timestamp,symbol,price\n");
+            verify(priceIngestionService, timeout(10000).atLeastOnce()).refresh(any());
+
+            Files.writeString(eth, "timestamp,symbol,price\n");
+            verify(priceIngestionService, timeout(10000).atLeastOnce()).refresh(argThat(files -> files.contains(eth)));
+        } finally {
+            watcher.stop();
+        }
+    }
+}
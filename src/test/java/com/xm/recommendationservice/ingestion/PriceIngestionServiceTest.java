@@ -0,0 +1,201 @@
+package com.xm.recommendationservice.ingestion;
+
+import com.xm.recommendationservice.cluster.ShardRouter;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceIngestionServiceTest {
+
+    private static final String HEADER = "timestamp,symbol,price\n";
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private InMemoryPriceRepository priceRepository;
+    private PriceIngestionService priceIngestionService;
+    private Path btcFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        btcFile = directory.resolve("BTC_values.csv");
+        Files.writeString(btcFile, HEADER + "1000,BTC,10.5\n2000,BTC,11\n");
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setDirectory(directory.toString());
+        priceRepository = new InMemoryPriceRepository();
+        meterRegistry = new SimpleMeterRegistry();
+        priceIngestionService = new PriceIngestionService(priceRepository, priceProperties,
+                new IngestionMetrics(meterRegistry, priceRepository), new ShardRouter(priceProperties));
+        priceIngestionService.load();
+    }
+
+    @Test
+    void testLoadOk() {
+        SymbolPrices prices = priceRepository.findBySymbol("BTC").orElseThrow();
+        assertEquals(2, prices.size());
+        assertEquals(new BigDecimal("11"), prices.getPriceValue(1));
+    }
+
+    @Test
+    void testAppendedRowsOk() throws IOException {
+        SymbolPrices before = priceRepository.findBySymbol("BTC").orElseThrow();
+        long version = priceRepository.getVersion();
+        append(btcFile, "3000,BTC,9.75\n4000,BTC,12");
+
+        priceIngestionService.refresh(List.of(btcFile));
+        SymbolPrices after = priceRepository.findBySymbol("BTC").orElseThrow();
+        assertEquals(3, after.size());
+        assertEquals(new BigDecimal("9.75"), after.getPriceValue(2));
+        assertEquals(975L, after.getSummary().getMinPrice());
+        assertEquals(2, before.size());
+        assertTrue(priceRepository.getVersion() > version);
+
+        append(btcFile, "\n");
+        priceIngestionService.refresh(List.of(btcFile));
+        assertEquals(4, priceRepository.findBySymbol("BTC").orElseThrow().size());
+    }
+
+    @Test
+    void testRewrittenFileOk() throws IOException {
+        Files.writeString(btcFile, HEADER + "1000,BTC,20\n2000,BTC,21\n3000,BTC,22\n");
+
+        priceIngestionService.refresh(List.of(btcFile));
+        SymbolPrices prices = priceRepository.findBySymbol("BTC").orElseThrow();
+        assertEquals(3, prices.size());
+        assertEquals(new BigDecimal("20"), prices.getPriceValue(0));
+    }
+
+    @Test
+    void testEditedRowOfSameLengthOk() throws IOException {
+        StringBuilder rows = new StringBuilder(HEADER);
+        for (int i = 1; i <= 20; i++) {
+            rows.append(i * 1000).append(",BTC,46813.21\n");
+        }
+        Files.writeString(btcFile, rows);
+        priceIngestionService.refresh(List.of(btcFile));
+        assertEquals(20, priceRepository.findBySymbol("BTC").orElseThrow().size());
+
+        FileTime lastModified = Files.getLastModifiedTime(btcFile);
+        Files.writeString(btcFile, rows.toString().replace("10000,BTC,46813.21", "10000,BTC,46813.12"));
+        Files.setLastModifiedTime(btcFile, FileTime.fromMillis(lastModified.toMillis() + 1000));
+        priceIngestionService.refresh(List.of(btcFile));
+        SymbolPrices prices = priceRepository.findBySymbol("BTC").orElseThrow();
+        assertEquals(20, prices.size());
+        assertEquals(new BigDecimal("46813.12"), prices.getPriceValue(9));
+        assertEquals(new BigDecimal("46813.21"), prices.getPriceValue(10));
+    }
+
+    @Test
+    void testFileOfSameSizeAndModificationTimeSkipped() throws IOException {
+        FileTime lastModified = Files.getLastModifiedTime(btcFile);
+        Files.writeString(btcFile, HEADER + "1000,BTC,10.5\n2000,BTC,12\n");
+        Files.setLastModifiedTime(btcFile, lastModified);
+
+        priceIngestionService.refresh(List.of(btcFile));
+        assertEquals(new BigDecimal("11"), priceRepository.findBySymbol("BTC").orElseThrow().getPriceValue(1));
+
+        Files.setLastModifiedTime(btcFile, FileTime.fromMillis(lastModified.toMillis() + 1000));
+        priceIngestionService.refresh(List.of(btcFile));
+        assertEquals(new BigDecimal("12"), priceRepository.findBySymbol("BTC").orElseThrow().getPriceValue(1));
+    }
+
+    @Test
+    void testNewAndDeletedFilesOk() throws IOException {
+        Path ethFile = directory.resolve("ETH_values.csv");
+        Files.writeString(ethFile, HEADER + "1000,ETH,3000\n");
+        Files.delete(btcFile);
+
+        priceIngestionService.rescan();
+        assertEquals(1, priceRepository.findBySymbol("ETH").orElseThrow().size());
+        assertFalse(priceRepository.findBySymbol("BTC").isPresent());
+    }
+
+    @Test
+    void testMetricsOk() throws IOException {
+        append(btcFile, "3000,BTC,oops\n4000,BTC,12\n");
+        priceIngestionService.refresh(List.of(btcFile));
+
+        assertEquals(3, meterRegistry.get("prices.ingestion.rows").tag("symbol", "BTC").counter().count());
+        assertEquals(1, meterRegistry.get("prices.ingestion.malformed.rows").tag("symbol", "BTC").counter().count());
+        assertEquals(3, meterRegistry.get("prices.store.rows").tag("symbol", "BTC").gauge().value());
+        assertEquals(2, meterRegistry.get("prices.ingestion").timer().count());
+
+        Files.delete(btcFile);
+        priceIngestionService.rescan();
+        assertTrue(meterRegistry.find("prices.store.rows").gauges().isEmpty());
+    }
+
+    @Test
+    void testSnapshotOk() throws IOException {
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setDirectory(directory.toString());
+        priceProperties.setSnapshotDirectory(directory.resolve("snapshots").toString());
+        createPriceIngestionService(new InMemoryPriceRepository(), priceProperties).load();
+        assertTrue(Files.isRegularFile(directory.resolve("snapshots").resolve("BTC_values.bin")));
+        append(btcFile, "3000,BTC,9.75\n");
+
+        InMemoryPriceRepository restoredRepository = new InMemoryPriceRepository();
+        createPriceIngestionService(restoredRepository, priceProperties).load();
+        SymbolPrices restored = restoredRepository.findBySymbol("BTC").orElseThrow();
+        assertEquals(3, restored.size());
+        assertEquals(new BigDecimal("10.5"), restored.getPriceValue(0));
+        assertEquals(new BigDecimal("11"), restored.getPriceValue(1));
+        assertEquals(new BigDecimal("9.75"), restored.getPriceValue(2));
+
+        Files.writeString(btcFile, HEADER + "1000,BTC,20\n");
+        InMemoryPriceRepository rewrittenRepository = new InMemoryPriceRepository();
+        createPriceIngestionService(rewrittenRepository, priceProperties).load();
+        SymbolPrices rewritten = rewrittenRepository.findBySymbol("BTC").orElseThrow();
+        assertEquals(1, rewritten.size());
+        assertEquals(new BigDecimal("20"), rewritten.getPriceValue(0));
+    }
+
+    @Test
+    void testSnapshotOfEditedFileIgnored() throws IOException {
+        StringBuilder rows = new StringBuilder(HEADER);
+        for (int i = 1; i <= 20; i++) {
+            rows.append(i * 1000).append(",BTC,46813.21\n");
+        }
+        Files.writeString(btcFile, rows);
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setDirectory(directory.toString());
+        priceProperties.setSnapshotDirectory(directory.resolve("snapshots").toString());
+        createPriceIngestionService(new InMemoryPriceRepository(), priceProperties).load();
+
+        Files.writeString(btcFile, rows.toString().replace("10000,BTC,46813.21", "10000,BTC,46813.12"));
+        append(btcFile, "21000,BTC,47000\n");
+        InMemoryPriceRepository editedRepository = new InMemoryPriceRepository();
+        createPriceIngestionService(editedRepository, priceProperties).load();
+        SymbolPrices edited = editedRepository.findBySymbol("BTC").orElseThrow();
+        assertEquals(21, edited.size());
+        assertEquals(new BigDecimal("46813.12"), edited.getPriceValue(9));
+    }
+
+    private static PriceIngestionService createPriceIngestionService(InMemoryPriceRepository priceRepository,
+                                                                     PriceProperties priceProperties) {
+        return new PriceIngestionService(priceRepository, priceProperties,
+                new IngestionMetrics(new SimpleMeterRegistry(), priceRepository), new ShardRouter(priceProperties));
+    }
+
+    private static void append(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,330 @@
+package com.xm.recommendationservice.repository;
+
+import com.xm.recommendationservice.cluster.ShardRouter;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.ingestion.IngestionMetrics;
+import com.xm.recommendationservice.ingestion.PriceIngestionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnStoreTest {
+
+    private static final int ROWS = 1000;
+    private static final long COLUMN_BYTES = 2L * ROWS * Long.BYTES;
+
+    @TempDir
+    Path directory;
+
+    private ColumnStore columnStore;
+    private InMemoryPriceRepository priceRepository;
+
+    @BeforeEach
+    void setUp() {
+        columnStore = new ColumnStore(2 * COLUMN_BYTES, directory.toString());
+        priceRepository = new InMemoryPriceRepository(columnStore);
+    }
+
+    @AfterEach
+    void tearDown() {
+        priceRepository.close();
+    }
+
+    @Test
+    void testPagesOutLeastRecentlyReadSymbolsBeyondLimit() {
+        List<SymbolPrices> saved = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            saved.add(build("S" + i, i));
+        }
+        priceRepository.update(saved, Collections.emptyList());
+
+        assertTrue(columnStore.getResidentBytes() <= 2 * COLUMN_BYTES);
+        assertEquals(3, columnStore.getPageOuts());
+        assertEquals(3, saved.stream().filter(prices -> prices.getColumnBytes() == 0).count());
+        assertEquals(5, priceRepository.findAll().size());
+    }
+
+    @Test
+    void testReadsPagedOutColumnsBack() {
+        List<SymbolPrices> saved = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            saved.add(build("S" + i, i));
+        }
+        priceRepository.update(saved, Collections.emptyList());
+
+        for (int i = 0; i < 5; i++) {
+            SymbolPrices prices = priceRepository.findBySymbol("S" + i).orElseThrow();
+            assertEquals(ROWS, prices.size());
+            for (int row = 0; row < ROWS; row++) {
+                assertEquals(timestamp(row), prices.getTimestamp(row));
+                assertEquals(price(i, row), prices.getPrice(row));
+            }
+            assertEquals(price(i, 0), prices.getMinPrice(0, ROWS));
+            assertEquals(price(i, ROWS - 1), prices.getMaxPrice(0, ROWS));
+            assertEquals(ROWS / 2, prices.lowerBound(timestamp(ROWS / 2)));
+        }
+        assertTrue(columnStore.getResidentBytes() <= 2 * COLUMN_BYTES);
+    }
+
+    @Test
+    void testReadsFewRowsFromMapping() {
+        SymbolPrices cold = build("COLD", 1);
+        priceRepository.update(List.of(cold, build("HOT", 2), build("HOTTER", 3)), Collections.emptyList());
+
+        assertEquals(ROWS / 2, cold.upperBound(timestamp(ROWS / 2 - 1)));
+        assertEquals(price(1, 10), cold.getMinPrice(10, 20));
+        assertEquals(price(1, ROWS - 1), cold.getMaxPrice(0, ROWS));
+
+        assertEquals(0, cold.getColumnBytes());
+        assertEquals(0, columnStore.getPageIns());
+    }
+
+    @Test
+    void testCopiesFrequentlyReadColumnsBack() {
+        SymbolPrices cold = build("COLD", 1);
+        priceRepository.update(List.of(cold, build("HOT", 2), build("HOTTER", 3)), Collections.emptyList());
+
+        for (int row = 0; row < ROWS; row++) {
+            assertEquals(price(1, row), cold.getPrice(row));
+            assertEquals(timestamp(row), cold.getTimestamp(row));
+        }
+
+        assertEquals(COLUMN_BYTES, cold.getColumnBytes());
+        assertEquals(1, columnStore.getPageIns());
+        assertTrue(columnStore.getResidentBytes() <= 2 * COLUMN_BYTES);
+    }
+
+    @Test
+    void testKeepsSummaryOfPagedOutSymbols() {
+        SymbolPrices cold = build("COLD", 1);
+        priceRepository.update(List.of(cold, build("HOT", 2), build("HOTTER", 3)), Collections.emptyList());
+
+        assertEquals(0, cold.getColumnBytes());
+        PriceSummary summary = cold.getSummary();
+        assertEquals(price(1, 0), summary.getMinPrice());
+        assertEquals(timestamp(ROWS - 1), summary.getNewestTimestamp());
+        assertEquals(0, columnStore.getPageIns());
+    }
+
+    @Test
+    void testAppendsToPagedOutSymbol() {
+        SymbolPrices cold = build("COLD", 1);
+        priceRepository.update(List.of(cold, build("HOT", 2), build("HOTTER", 3)), Collections.emptyList());
+
+        SymbolPrices appended = SymbolPricesBuilder.appendingTo(cold)
+                .add(timestamp(ROWS), price(1, ROWS), 0)
+                .build();
+        priceRepository.update(List.of(appended), Collections.emptyList());
+
+        assertEquals(ROWS + 1, appended.size());
+        assertEquals(timestamp(0), appended.getTimestamp(0));
+        assertEquals(price(1, ROWS), appended.getPrice(ROWS));
+        assertEquals(price(1, ROWS), appended.getMaxPrice(0, ROWS + 1));
+        assertEquals(ROWS, cold.size());
+    }
+
+    @Test
+    void testAppendsToPagedOutSymbolWithoutCopyingItBack() throws IOException {
+        SymbolPrices cold = build("COLD", 1);
+        priceRepository.update(List.of(cold, build("HOT", 2), build("HOTTER", 3)), Collections.emptyList());
+        List<Path> coldFiles = listColumnFiles("COLD-");
+
+        SymbolPricesBuilder builder = SymbolPricesBuilder.appendingTo(cold);
+        for (int row = ROWS; row < ROWS + 10; row++) {
+            builder.add(timestamp(row), price(1, row), 0);
+        }
+        SymbolPrices appended = builder.build();
+        priceRepository.update(List.of(appended), Collections.emptyList());
+
+        assertEquals(0, columnStore.getPageIns());
+        assertTrue(appended.getColumnBytes() < COLUMN_BYTES / 2);
+        assertEquals(price(1, 0), appended.getPrice(0));
+        assertEquals(timestamp(ROWS - 1), appended.getTimestamp(ROWS - 1));
+        assertEquals(price(1, ROWS + 9), appended.getPrice(ROWS + 9));
+        assertEquals(price(1, 0), appended.getMinPrice(0, ROWS + 10));
+        assertEquals(price(1, ROWS + 9), appended.getMaxPrice(ROWS - 5, ROWS + 10));
+        assertEquals(ROWS + 5, appended.lowerBound(timestamp(ROWS + 5)));
+        assertEquals(5, appended.lowerBound(timestamp(5)));
+        CandleIndex hours = appended.getCandles(CandleResolution.HOUR);
+        assertEquals(price(1, ROWS + 9), hours.getLastPrice(hours.size() - 1));
+
+        priceRepository.update(List.of(build("S1", 4), build("S2", 5), build("S3", 6), build("S4", 7)),
+                Collections.emptyList());
+
+        assertEquals(0, appended.getColumnBytes());
+        assertEquals(coldFiles, listColumnFiles("COLD-"));
+        assertEquals(price(1, 1), appended.getPrice(1));
+        assertEquals(timestamp(ROWS + 9), appended.getTimestamp(ROWS + 9));
+        assertEquals(price(1, ROWS + 9), appended.getPrice(ROWS + 9));
+        assertEquals(0, columnStore.getPageIns());
+    }
+
+    @Test
+    void testCountsColumnsSharedWithAppendedVersionOnce() {
+        SymbolPricesBuilder builder = new SymbolPricesBuilder("S", 2 * ROWS);
+        for (int row = 0; row < ROWS; row++) {
+            builder.add(timestamp(row), price(1, row), 0);
+        }
+        SymbolPrices prices = builder.build();
+        priceRepository.update(List.of(prices), Collections.emptyList());
+        assertEquals(2 * COLUMN_BYTES, columnStore.getResidentBytes());
+
+        SymbolPrices appended = SymbolPricesBuilder.appendingTo(prices)
+                .add(timestamp(ROWS), price(1, ROWS), 0)
+                .build();
+        priceRepository.admit(appended);
+        assertEquals(2 * COLUMN_BYTES, columnStore.getResidentBytes());
+        priceRepository.update(List.of(appended), Collections.emptyList());
+
+        assertEquals(2 * COLUMN_BYTES, columnStore.getResidentBytes());
+        assertEquals(0, columnStore.getPageOuts());
+        assertEquals(2 * COLUMN_BYTES, appended.getColumnBytes());
+    }
+
+    @Test
+    void testDoesNotCopyReleasedColumnsBack() {
+        SymbolPrices cold = build("COLD", 1);
+        priceRepository.update(List.of(cold, build("HOT", 2), build("HOTTER", 3)), Collections.emptyList());
+        priceRepository.update(List.of(build("COLD", 4)), Collections.emptyList());
+
+        for (int read = 0; read < 3; read++) {
+            for (int row = 0; row < ROWS; row++) {
+                assertEquals(price(1, row), cold.getPrice(row));
+            }
+        }
+
+        assertEquals(0, cold.getColumnBytes());
+        assertEquals(0, columnStore.getPageIns());
+    }
+
+    @Test
+    void testReadsPriceScalesOfPagedOutColumns() {
+        SymbolPricesBuilder builder = new SymbolPricesBuilder("COLD", ROWS);
+        for (int row = 0; row < ROWS; row++) {
+            builder.add(timestamp(row), price(1, row), row % 3);
+        }
+        SymbolPrices cold = builder.build();
+        priceRepository.update(List.of(cold, build("HOT", 2), build("HOTTER", 3)), Collections.emptyList());
+
+        assertEquals(0, cold.getColumnBytes());
+        assertEquals(1, cold.getPriceScale(1));
+        for (int row = 0; row < ROWS; row++) {
+            assertEquals(row % 3, cold.getPriceScale(row));
+            assertEquals(BigDecimal.valueOf(price(1, row), row % 3), cold.getPriceValue(row));
+        }
+        assertEquals(COLUMN_BYTES + ROWS, cold.getColumnBytes());
+    }
+
+    @Test
+    void testSavesSnapshotsWithoutCopyingColumnsBack() throws IOException {
+        Path priceDirectory = Files.createDirectories(directory.resolve("prices"));
+        for (int i = 0; i < 5; i++) {
+            StringBuilder csv = new StringBuilder("timestamp,symbol,price\n");
+            for (int row = 0; row < ROWS; row++) {
+                csv.append(timestamp(row)).append(",S").append(i).append(',').append(price(i, row)).append('\n');
+            }
+            Files.writeString(priceDirectory.resolve("S" + i + PriceIngestionService.FILE_SUFFIX), csv);
+        }
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setDirectory(priceDirectory.toString());
+        priceProperties.setSnapshotDirectory(directory.resolve("snapshots").toString());
+        PriceIngestionService priceIngestionService = createPriceIngestionService(priceRepository, priceProperties);
+        priceIngestionService.load();
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(priceDirectory.resolve("S" + i + PriceIngestionService.FILE_SUFFIX),
+                    timestamp(ROWS) + ",S" + i + "," + price(i, ROWS) + "\n", StandardOpenOption.APPEND);
+        }
+        priceIngestionService.rescan();
+        assertTrue(columnStore.getPageOuts() > 0);
+        long pageIns = columnStore.getPageIns();
+
+        priceIngestionService.saveSnapshots();
+
+        assertEquals(pageIns, columnStore.getPageIns());
+        assertTrue(columnStore.getResidentBytes() <= 2 * COLUMN_BYTES);
+        InMemoryPriceRepository restoredRepository = new InMemoryPriceRepository();
+        createPriceIngestionService(restoredRepository, priceProperties).load();
+        for (int i = 0; i < 5; i++) {
+            SymbolPrices restored = restoredRepository.findBySymbol("S" + i).orElseThrow();
+            assertEquals(ROWS + 1, restored.size());
+            assertEquals(price(i, 0), restored.getPrice(0));
+            assertEquals(price(i, ROWS), restored.getPrice(ROWS));
+        }
+    }
+
+    @Test
+    void testDeletesFilesOnClose() throws IOException {
+        List<SymbolPrices> saved = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            saved.add(build("S" + i, i));
+        }
+        priceRepository.update(saved, Collections.emptyList());
+        assertFalse(listColumnFiles().isEmpty());
+
+        priceRepository.close();
+
+        assertTrue(listColumnFiles().isEmpty());
+    }
+
+    @Test
+    void testUnboundedStoreKeepsColumns() {
+        InMemoryPriceRepository unbounded = new InMemoryPriceRepository();
+        SymbolPrices prices = build("BTC", 1);
+        unbounded.update(List.of(prices, build("ETH", 2), build("XRP", 3)), Collections.emptyList());
+
+        assertEquals(COLUMN_BYTES, prices.getColumnBytes());
+        assertFalse(unbounded.getColumnStore().isBounded());
+    }
+
+    private List<Path> listColumnFiles() throws IOException {
+        return listColumnFiles("");
+    }
+
+    private List<Path> listColumnFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)
+                            && file.toString().endsWith(ColumnStore.FILE_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static PriceIngestionService createPriceIngestionService(InMemoryPriceRepository priceRepository,
+                                                                     PriceProperties priceProperties) {
+        return new PriceIngestionService(priceRepository, priceProperties,
+                new IngestionMetrics(new SimpleMeterRegistry(), priceRepository), new ShardRouter(priceProperties));
+    }
+
+    private static SymbolPrices build(String symbol, int seed) {
+        SymbolPricesBuilder builder = new SymbolPricesBuilder(symbol, ROWS);
+        for (int row = 0; row < ROWS; row++) {
+            builder.add(timestamp(row), price(seed, row), 0);
+        }
+        return builder.build();
+    }
+
+    private static long timestamp(int row) {
+        return 1_641_000_000_000L + row * 60_000L;
+    }
+
+    private static long price(int seed, int row) {
+        return 1000L * (seed + 1) + row;
+    }
+}
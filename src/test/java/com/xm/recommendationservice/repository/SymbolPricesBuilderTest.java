@@ -0,0 +1,177 @@
+package com.xm.recommendationservice.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SymbolPricesBuilderTest {
+
+    private static final String BTC = "BTC";
+
+    @Test
+    void testBuildSortsRowsAndKeepsSummary() {
+        SymbolPrices prices = new SymbolPricesBuilder(BTC)
+                .add(3000L, new BigDecimal("10.5"))
+                .add(1000L, new BigDecimal("9.25"))
+                .add(2000L, new BigDecimal("11"))
+                .build();
+
+        assertEquals(3, prices.size());
+        assertEquals(2, prices.getScale());
+        assertEquals(1000L, prices.getTimestamp(0));
+        assertEquals(3000L, prices.getTimestamp(2));
+        assertEquals(new BigDecimal("10.5"), prices.getPriceValue(2));
+
+        PriceSummary summary = prices.getSummary();
+        assertEquals(925L, summary.getMinPrice());
+        assertEquals(1000L, summary.getMinPriceTimestamp());
+        assertEquals(1100L, summary.getMaxPrice());
+        assertEquals(2000L, summary.getMaxPriceTimestamp());
+        assertEquals(1000L, summary.getOldestTimestamp());
+        assertEquals(3000L, summary.getNewestTimestamp());
+        assertEquals(1050L, summary.getNewestPrice());
+    }
+
+    @Test
+    void testSummaryKeepsFirstRowOnTies() {
+        PriceSummary summary = new SymbolPricesBuilder(BTC)
+                .add(1000L, new BigDecimal("5"))
+                .add(2000L, new BigDecimal("5.0"))
+                .build()
+                .getSummary();
+
+        assertEquals(1000L, summary.getMinPriceTimestamp());
+        assertEquals(1000L, summary.getMaxPriceTimestamp());
+    }
+
+    @Test
+    void testKeepsScaleOfEachRow() {
+        SymbolPrices base = new SymbolPricesBuilder(BTC)
+                .add(2000L, new BigDecimal("46979.610"))
+                .add(1000L, new BigDecimal("46813.21"))
+                .add(3000L, new BigDecimal("4.7E+4"))
+                .build();
+        SymbolPrices prices = SymbolPricesBuilder.appendingTo(base)
+                .add(4000L, new BigDecimal("47000.5"))
+                .build();
+
+        assertEquals(3, prices.getScale());
+        assertEquals("46813.21", prices.getPriceValue(0).toString());
+        assertEquals("46979.610", prices.getPriceValue(1).toString());
+        assertEquals("47000", prices.getPriceValue(2).toString());
+        assertEquals("47000.5", prices.getPriceValue(3).toString());
+        assertEquals(46_813_210L, prices.getPrice(0));
+
+        PriceSummary summary = prices.getSummary();
+        assertEquals(2, summary.getMinPriceScale());
+        assertEquals(1, summary.getMaxPriceScale());
+        assertEquals(2, summary.getOldestPriceScale());
+        assertEquals(1, summary.getNewestPriceScale());
+        assertEquals(3, base.size());
+        assertEquals("47000", base.getPriceValue(2).toString());
+    }
+
+    @Test
+    void testEmptySummary() {
+        assertTrue(new SymbolPricesBuilder(BTC).build().getSummary().isEmpty());
+    }
+
+    @Test
+    void testRangeMinMaxMatchesScanAfterAppends() {
+        Random random = new Random(42);
+        SymbolPrices prices = new SymbolPricesBuilder(BTC).build();
+        for (int batch = 0; batch < 5; batch++) {
+            SymbolPricesBuilder builder = SymbolPricesBuilder.appendingTo(prices);
+            for (int i = random.nextInt(3000); i > 0; i--) {
+                builder.add(prices.size() + i, random.nextInt(1_000_000), 0);
+            }
+            SymbolPrices previous = prices;
+            prices = builder.build();
+            assertRangesMatchScan(prices, random);
+            assertRangesMatchScan(previous, random);
+        }
+    }
+
+    @Test
+    void testAppendedCandlesMatchFullBuild() {
+        Random random = new Random(7);
+        SymbolPrices appended = new SymbolPricesBuilder(BTC).build();
+        SymbolPricesBuilder full = new SymbolPricesBuilder(BTC);
+        long timestamp = 1_640_995_200_000L;
+        List<SymbolPrices> versions = new ArrayList<>();
+        List<SymbolPrices> fullVersions = new ArrayList<>();
+        for (int batch = 0; batch < 20; batch++) {
+            SymbolPricesBuilder builder = SymbolPricesBuilder.appendingTo(appended);
+            SymbolPricesBuilder fullCopy = new SymbolPricesBuilder(BTC);
+            for (int i = random.nextInt(200); i > 0; i--) {
+                timestamp += random.nextInt(3_600_000);
+                long price = 1 + random.nextInt(1000);
+                builder.add(timestamp, price, 0);
+                full.add(timestamp, price, 0);
+            }
+            appended = builder.build();
+            for (int row = 0; row < appended.size(); row++) {
+                fullCopy.add(appended.getTimestamp(row), appended.getPrice(row), 0);
+            }
+            versions.add(appended);
+            fullVersions.add(fullCopy.build());
+        }
+        assertCandlesEqual(full.build(), appended);
+        for (int i = 0; i < versions.size(); i++) {
+            assertCandlesEqual(fullVersions.get(i), versions.get(i));
+        }
+    }
+
+    @Test
+    void testAppendingSingleRowsSharesCandles() {
+        SymbolPrices prices = new SymbolPricesBuilder(BTC).build();
+        SymbolPricesBuilder full = new SymbolPricesBuilder(BTC);
+        long timestamp = 1_640_995_200_000L;
+        for (int i = 0; i < 5000; i++) {
+            timestamp += 600_000;
+            prices = SymbolPricesBuilder.appendingTo(prices).add(timestamp, 1 + i % 97, 0).build();
+            full.add(timestamp, 1 + i % 97, 0);
+        }
+        assertCandlesEqual(full.build(), prices);
+    }
+
+    private static void assertCandlesEqual(SymbolPrices built, SymbolPrices appended) {
+        for (CandleResolution resolution : CandleResolution.values()) {
+            CandleIndex expected = built.getCandles(resolution);
+            CandleIndex actual = appended.getCandles(resolution);
+            assertEquals(expected.size(), actual.size());
+            int count = 0;
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getStart(i), actual.getStart(i));
+                assertEquals(expected.getMinPrice(i), actual.getMinPrice(i));
+                assertEquals(expected.getMaxPrice(i), actual.getMaxPrice(i));
+                assertEquals(expected.getFirstPrice(i), actual.getFirstPrice(i));
+                assertEquals(expected.getLastPrice(i), actual.getLastPrice(i));
+                assertEquals(expected.getCount(i), actual.getCount(i));
+                count += actual.getCount(i);
+            }
+            assertEquals(built.size(), count);
+        }
+    }
+
+    private static void assertRangesMatchScan(SymbolPrices prices, Random random) {
+        for (int query = 0; query < 500 && !prices.isEmpty(); query++) {
+            int from = random.nextInt(prices.size());
+            int to = from + 1 + random.nextInt(prices.size() - from);
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, prices.getPrice(i));
+                max = Math.max(max, prices.getPrice(i));
+            }
+            assertEquals(min, prices.getMinPrice(from, to));
+            assertEquals(max, prices.getMaxPrice(from, to));
+        }
+    }
+}
@@ -1,32 +1,40 @@
 package com.xm.recommendationservice.service;
 
+import com.xm.recommendationservice.cluster.PriceCluster;
+import com.xm.recommendationservice.cluster.ShardRouter;
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.domain.Candle;
 import com.xm.recommendationservice.domain.CryptoNormalizedRange;
 import com.xm.recommendationservice.domain.CryptoPrice;
+import com.xm.recommendationservice.domain.CryptoStats;
 import com.xm.recommendationservice.exception.ServiceException;
+import com.xm.recommendationservice.ingestion.IngestionMetrics;
+import com.xm.recommendationservice.ingestion.PriceIngestionService;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-import org.slf4j.Logger;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@ExtendWith(MockitoExtension.class)
 class PriceServiceTest {
 
     private static final String BTC = "BTC";
-    public static final CryptoNormalizedRange BTC_NORMALIZED_RANGE = new CryptoNormalizedRange(BTC, BigDecimal.valueOf(0.01));
+    public static final CryptoNormalizedRange BTC_NORMALIZED_RANGE = new CryptoNormalizedRange(BTC, 71, 4);
     private static final CryptoPrice BTC_PRICE_3 = new CryptoPrice(BTC, LocalDateTime.parse("2022-01-01T16:00:00"), BigDecimal.valueOf(47143.98));
     private static final CryptoPrice BTC_PRICE_2 = new CryptoPrice(BTC, LocalDateTime.parse("2022-01-01T13:00:00"), BigDecimal.valueOf(46979.61));
     private static final CryptoPrice BTC_PRICE_1 = new CryptoPrice(BTC, LocalDateTime.parse("2022-01-01T10:00:00"), BigDecimal.valueOf(46813.21));
@@ -35,11 +43,29 @@ class PriceServiceTest {
     public static final LocalDateTime AT_DATE = LocalDateTime.parse("2022-01-01T12:00:00");
     public static final LocalDateTime TO_DATE = LocalDateTime.parse("2022-01-01T16:30:00");
 
-    @Mock
-    private Logger log;
-    @InjectMocks
+    private final PriceProperties priceProperties = new PriceProperties();
+    private final InMemoryPriceRepository priceRepository = new InMemoryPriceRepository();
     private PriceService priceService;
 
+    @BeforeEach
+    void setUp() {
+        priceService = newPriceService(priceRepository, priceProperties);
+        loadPrices(priceRepository, priceProperties);
+    }
+
+    private static PriceService newPriceService(InMemoryPriceRepository priceRepository,
+                                                PriceProperties priceProperties) {
+        return new PriceService(priceRepository, priceProperties, new SymbolAggregator(priceProperties),
+                new RollingNormalizedRangeRankings(priceRepository, priceProperties),
+                PriceCluster.singleNode(priceRepository));
+    }
+
+    private static void loadPrices(InMemoryPriceRepository priceRepository, PriceProperties priceProperties) {
+        new PriceIngestionService(priceRepository, priceProperties,
+                new IngestionMetrics(new SimpleMeterRegistry(), priceRepository), new ShardRouter(priceProperties))
+                .load();
+    }
+
     @Test
     void testGetAllPricesOk() throws ServiceException {
         List<CryptoPrice> expected = Arrays.asList(
@@ -91,18 +117,115 @@ class PriceServiceTest {
         Assertions.assertEquals(BTC_PRICE_3, result);
     }
 
+    @Test
+    void testGetStatsOk() throws ServiceException {
+        List<CryptoStats> result = priceService.getStats(List.of(BTC, BTC), List.of());
+        assertEquals(1, result.size());
+        assertEquals(BTC_PRICE_1, result.get(0).getMinPrice());
+        assertEquals(BTC_PRICE_3, result.get(0).getMaxPrice());
+        assertEquals(BTC_PRICE_1, result.get(0).getOldestMonthPrice());
+        assertEquals(BTC_PRICE_3, result.get(0).getNewestMonthPrice());
+
+        CryptoStats maxOnly = priceService.getStats(List.of(BTC), List.of("maxPrice")).get(0);
+        assertEquals(BTC_PRICE_3, maxOnly.getMaxPrice());
+        assertNull(maxOnly.getMinPrice());
+    }
+
+    @Test
+    void testGetStatsException() {
+        assertThrows(ServiceException.class, () -> priceService.getStats(List.of(BTC, NEW_CRYPTO), List.of()));
+        assertThrows(ServiceException.class, () -> priceService.getStats(List.of(BTC), List.of("median")));
+    }
+
+    @Test
+    void testGetCandlesOk() throws ServiceException {
+        assertEquals(3, priceService.getCandles(BTC, "1h", null, null).size());
+        List<Candle> result = priceService.getCandles(BTC, "1d", LOCAL_DATE.atStartOfDay(), null);
+        assertEquals(List.of(new Candle(LOCAL_DATE.atStartOfDay(), BTC_PRICE_1.getPriceValue(),
+                BTC_PRICE_3.getPriceValue(), BTC_PRICE_1.getPriceValue(), BTC_PRICE_3.getPriceValue(), 3)), result);
+        assertEquals(List.of(), priceService.getCandles(BTC, "1w", null, LOCAL_DATE.atStartOfDay().minusWeeks(1)));
+    }
+
+    @Test
+    void testGetCandlesException() {
+        assertThrows(ServiceException.class, () -> priceService.getCandles(BTC, "1m", null, null));
+        assertThrows(ServiceException.class, () -> priceService.getCandles(BTC, "1d", TO_DATE, AT_DATE));
+    }
+
     @Test
     void testGetAllCryptosWithNormalizedRangeOk() throws ServiceException {
         Set<CryptoNormalizedRange> result = priceService.getAllCryptosWithNormalizedRange();
         assertEquals(Set.of(BTC_NORMALIZED_RANGE), result);
     }
 
+    @Test
+    void testNormalizedRangeDefaultScaleOk() throws ServiceException {
+        CryptoNormalizedRange result = priceService.getAllCryptosWithNormalizedRange().iterator().next();
+        assertEquals(new BigDecimal("0.0071"), result.getNormalizedRange());
+    }
+
+    @Test
+    void testNormalizedRangeScaleOk() throws ServiceException {
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setNormalizedRangeScale(2);
+        InMemoryPriceRepository priceRepository = new InMemoryPriceRepository();
+        PriceService priceService = newPriceService(priceRepository, priceProperties);
+        loadPrices(priceRepository, priceProperties);
+        Set<CryptoNormalizedRange> result = priceService.getAllCryptosWithNormalizedRange();
+        assertEquals(Set.of(new CryptoNormalizedRange(BTC, 1, 2)), result);
+        assertEquals(new BigDecimal("0.01"), result.iterator().next().getNormalizedRange());
+    }
+
     @Test
     void testGetCryptoWithHighestNormalizedRangeByDateOk() throws ServiceException {
         CryptoNormalizedRange result = priceService.getCryptoWithHighestNormalizedRangeByDate(LOCAL_DATE);
         Assertions.assertEquals(BTC_NORMALIZED_RANGE, result);
     }
 
+    @Test
+    void testGetCryptoWithHighestNormalizedRangeByDateException() {
+        assertThrows(ServiceException.class,
+                () -> priceService.getCryptoWithHighestNormalizedRangeByDate(LOCAL_DATE.plusDays(1)));
+    }
+
+    @Test
+    void testGetCryptosWithNormalizedRangeInPeriodOk() throws ServiceException {
+        Set<CryptoNormalizedRange> result =
+                priceService.getCryptosWithNormalizedRangeInPeriod(LOCAL_DATE.minusDays(1), LOCAL_DATE);
+        assertEquals(Set.of(BTC_NORMALIZED_RANGE), result);
+    }
+
+    @Test
+    void testGetCryptosWithNormalizedRangeBetweenOk() throws ServiceException {
+        Set<CryptoNormalizedRange> result = priceService.getCryptosWithNormalizedRangeBetween(
+                BTC_PRICE_1.getPriceTime(), BTC_PRICE_3.getPriceTime());
+        assertEquals(new BigDecimal("0.0036"), result.iterator().next().getNormalizedRange());
+        assertEquals(Set.of(), priceService.getCryptosWithNormalizedRangeBetween(TO_DATE, TO_DATE.plusDays(1)));
+        assertThrows(ServiceException.class, () -> priceService.getCryptosWithNormalizedRangeBetween(TO_DATE, AT_DATE));
+    }
+
+    @Test
+    void testGetCryptosWithNormalizedRangeInRollingWindowOk() throws ServiceException {
+        assertEquals(Set.of(BTC_NORMALIZED_RANGE), priceService.getCryptosWithNormalizedRangeInRollingWindow("24h"));
+        Set<CryptoNormalizedRange> result = priceService.getCryptosWithNormalizedRangeInRollingWindow("4h");
+        assertEquals(new BigDecimal("0.0035"), result.iterator().next().getNormalizedRange());
+        assertThrows(ServiceException.class, () -> priceService.getCryptosWithNormalizedRangeInRollingWindow("0h"));
+        assertThrows(ServiceException.class, () -> priceService.getCryptosWithNormalizedRangeInRollingWindow("day"));
+    }
+
+    @Test
+    void testRollingWindowRankingUpdatedOnIngestionOk() throws ServiceException {
+        long newest = CryptoPriceMapper.toEpochMilli(BTC_PRICE_3.getPriceTime());
+        priceRepository.update(List.of(new SymbolPricesBuilder("ETH").add(newest - 1000, 100, 0).add(newest, 200, 0)
+                .build()), List.of());
+        List<String> symbols = new ArrayList<>();
+        priceService.getCryptosWithNormalizedRangeInRollingWindow("24h").forEach(range -> symbols.add(range.getSymbol()));
+        assertEquals(List.of("ETH", BTC), symbols);
+
+        priceRepository.update(List.of(), List.of("ETH"));
+        assertEquals(Set.of(BTC_NORMALIZED_RANGE), priceService.getCryptosWithNormalizedRangeInRollingWindow("24h"));
+    }
+
     @Test
     void getAllPricesInPeriodOk() throws ServiceException {
         List<CryptoPrice> expected = Arrays.asList(
@@ -112,4 +235,30 @@ class PriceServiceTest {
         List<CryptoPrice> result = priceService.getAllPricesInPeriod(BTC, AT_DATE, TO_DATE);
         Assertions.assertEquals(expected, result);
     }
+
+    @Test
+    void getAllPricesPagesOk() throws ServiceException {
+        PricePage firstPage = priceService.getAllPrices(BTC, null, 2);
+        List<CryptoPrice> firstPrices = new ArrayList<>();
+        firstPage.forEach(firstPrices::add);
+        assertEquals(Arrays.asList(BTC_PRICE_1, BTC_PRICE_2), firstPrices);
+        assertNotNull(firstPage.getNextCursor());
+
+        PricePage secondPage = priceService.getAllPrices(BTC, firstPage.getNextCursor(), 2);
+        List<CryptoPrice> secondPrices = new ArrayList<>();
+        secondPage.forEach(secondPrices::add);
+        assertEquals(List.of(BTC_PRICE_3), secondPrices);
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void getAllPricesPageException() {
+        assertThrows(ServiceException.class, () -> priceService.getAllPrices(BTC, "not a cursor", 2));
+        assertThrows(ServiceException.class, () -> priceService.getAllPrices(BTC, null, 0));
+    }
+
+    @Test
+    void getAllPricesInPeriodException() {
+        assertThrows(ServiceException.class, () -> priceService.getAllPricesInPeriod(BTC, TO_DATE, AT_DATE));
+    }
 }
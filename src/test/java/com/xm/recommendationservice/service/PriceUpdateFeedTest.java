@@ -0,0 +1,84 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.domain.CryptoPriceRange;
+import com.xm.recommendationservice.domain.PriceUpdate;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PriceUpdateFeedTest {
+
+    private InMemoryPriceRepository priceRepository;
+    private PriceUpdateFeed priceUpdateFeed;
+    private final List<PriceUpdate> updates = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        priceRepository = new InMemoryPriceRepository();
+        save(new SymbolPricesBuilder("BTC").add(1000, 10, 0).add(2000, 20, 0).build());
+        save(new SymbolPricesBuilder("ETH").add(1000, 10, 0).add(2000, 15, 0).build());
+        priceUpdateFeed = new PriceUpdateFeed(priceRepository, new PriceProperties());
+        priceUpdateFeed.subscribe(updates::add);
+    }
+
+    @Test
+    void testOnlyChangesArePublished() {
+        save(SymbolPricesBuilder.appendingTo(priceRepository.findBySymbol("ETH").orElseThrow()).add(3000, 12, 0).build());
+        assertEquals(Collections.emptyList(), updates);
+
+        save(SymbolPricesBuilder.appendingTo(priceRepository.findBySymbol("ETH").orElseThrow()).add(4000, 18, 0).build());
+        assertEquals(1, updates.size());
+        CryptoPriceRange range = updates.get(0).getRanges().get(0);
+        assertEquals(new BigDecimal("18"), range.getMaxPrice().getPriceValue());
+        assertNull(updates.get(0).getRanking());
+
+        save(SymbolPricesBuilder.appendingTo(priceRepository.findBySymbol("ETH").orElseThrow()).add(5000, 30, 0).build());
+        assertEquals(List.of("ETH", "BTC"), symbols(updates.get(1)));
+        assertEquals(List.of("ETH", "BTC"), symbols(priceUpdateFeed.getSnapshot()));
+    }
+
+    @Test
+    void testRemovedSymbolIsPublished() {
+        priceRepository.update(Collections.emptyList(), List.of("ETH"));
+        assertEquals(List.of("ETH"), updates.get(0).getRemovedSymbols());
+        assertEquals(List.of("BTC"), symbols(updates.get(0)));
+        assertEquals(1, priceUpdateFeed.getSnapshot().getRanges().size());
+    }
+
+    @Test
+    void testClusterNodeIsPublished() {
+        assertNull(priceUpdateFeed.getSnapshot().getNode());
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setClusterNodes(List.of("http://node-0:8081", "http://node-1:8081"));
+        priceProperties.setClusterNode("http://node-1:8081");
+        PriceUpdateFeed clusterFeed = new PriceUpdateFeed(priceRepository, priceProperties);
+        List<PriceUpdate> clusterUpdates = new ArrayList<>();
+        clusterFeed.subscribe(clusterUpdates::add);
+
+        save(SymbolPricesBuilder.appendingTo(priceRepository.findBySymbol("ETH").orElseThrow()).add(3000, 30, 0).build());
+        assertEquals("http://node-1:8081", clusterFeed.getSnapshot().getNode());
+        assertEquals("http://node-1:8081", clusterUpdates.get(0).getNode());
+        assertNull(updates.get(0).getNode());
+    }
+
+    private void save(SymbolPrices prices) {
+        priceRepository.update(List.of(prices), Collections.emptyList());
+    }
+
+    private static List<String> symbols(PriceUpdate update) {
+        List<String> symbols = new ArrayList<>();
+        update.getRanking().forEach(range -> symbols.add(range.getSymbol()));
+        return symbols;
+    }
+}
@@ -0,0 +1,92 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.domain.CryptoNormalizedRange;
+import com.xm.recommendationservice.repository.InMemoryPriceRepository;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RollingNormalizedRangeRankingsTest {
+
+    private static final Duration WINDOW = Duration.ofDays(1);
+    private static final int SYMBOLS = 100;
+
+    private final PriceProperties priceProperties = new PriceProperties();
+    private InMemoryPriceRepository priceRepository;
+    private RollingNormalizedRangeRankings rankings;
+
+    @BeforeEach
+    void setUp() {
+        priceProperties.setRollingWindows(List.of(WINDOW));
+        priceRepository = new InMemoryPriceRepository();
+        List<SymbolPrices> allPrices = new ArrayList<>();
+        for (int i = 0; i < SYMBOLS; i++) {
+            allPrices.add(new SymbolPricesBuilder(String.format("S%02d", i))
+                    .add(i * 1000L, 10, 0).add(i * 1000L + 500, 10 + i, 0).build());
+        }
+        priceRepository.update(allPrices, Collections.emptyList());
+        rankings = new RollingNormalizedRangeRankings(priceRepository, priceProperties);
+    }
+
+    @Test
+    void testOnlyChangedAndLeavingCryptosAreRankedAgain() {
+        long ranked = rankings.getRankedCryptos();
+        // Moves the window start to 1001, past both prices of S00 and the first price of S01
+        append("S99", WINDOW.toMillis() + 1000, 50);
+        assertEquals(3, rankings.getRankedCryptos() - ranked);
+        assertEquals(SYMBOLS - 1, rankings.get(WINDOW).size());
+        assertEquals(rankAll(), rankings.get(WINDOW));
+
+        ranked = rankings.getRankedCryptos();
+        append("S50", 60000, 1);
+        assertEquals(1, rankings.getRankedCryptos() - ranked);
+        assertEquals(rankAll(), rankings.get(WINDOW));
+    }
+
+    @Test
+    void testDeletingNewestPriceMovesWindowBack() {
+        append("S99", WINDOW.toMillis() + 1000, 50);
+        priceRepository.update(Collections.emptyList(), List.of("S99"));
+
+        assertEquals(SYMBOLS - 1, rankings.get(WINDOW).size());
+        assertEquals(rankAll(), rankings.get(WINDOW));
+        assertEquals(rankAll(), rankings.get(WINDOW, 98500));
+    }
+
+    @Test
+    void testRankingIsCopiedOncePerUpdate() {
+        assertSame(rankings.get(WINDOW), rankings.get(WINDOW, 99500));
+        assertNull(rankings.get(WINDOW, 99000));
+        assertNull(rankings.get(Duration.ofHours(1)));
+    }
+
+    private void append(String symbol, long timestamp, long price) {
+        priceRepository.update(List.of(SymbolPricesBuilder.appendingTo(priceRepository.findBySymbol(symbol)
+                .orElseThrow()).add(timestamp, price, 0).build()), Collections.emptyList());
+    }
+
+    private Set<CryptoNormalizedRange> rankAll() {
+        long end = RollingNormalizedRangeRankings.getNewestTimestamp(priceRepository.findAll());
+        List<CryptoNormalizedRange> ranges = new ArrayList<>();
+        for (SymbolPrices prices : priceRepository.findAll()) {
+            CryptoNormalizedRange range = RollingNormalizedRangeRankings.calculate(prices, WINDOW, end,
+                    priceProperties.getNormalizedRangeScale());
+            if (range != null) {
+                ranges.add(range);
+            }
+        }
+        return NormalizedRangeCalculator.rank(ranges);
+    }
+}
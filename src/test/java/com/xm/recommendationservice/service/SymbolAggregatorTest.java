@@ -0,0 +1,37 @@
+package com.xm.recommendationservice.service;
+
+import com.xm.recommendationservice.config.PriceProperties;
+import com.xm.recommendationservice.repository.SymbolPrices;
+import com.xm.recommendationservice.repository.SymbolPricesBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SymbolAggregatorTest {
+
+    @Test
+    void testMapInParallelOk() {
+        PriceProperties priceProperties = new PriceProperties();
+        priceProperties.setAggregationParallelism(3);
+        priceProperties.setParallelAggregationThreshold(10);
+        SymbolAggregator symbolAggregator = new SymbolAggregator(priceProperties);
+        List<SymbolPrices> allPrices = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            allPrices.add(new SymbolPricesBuilder("S" + i).add(i, i, 0).build());
+        }
+
+        List<String> result = symbolAggregator.map(allPrices,
+                prices -> prices.getPrice(0) % 2 == 0 ? prices.getSymbol() : null);
+        symbolAggregator.destroy();
+
+        List<String> expected = allPrices.stream()
+                .filter(prices -> prices.getPrice(0) % 2 == 0)
+                .map(SymbolPrices::getSymbol)
+                .collect(Collectors.toList());
+        assertEquals(expected, result);
+    }
+}